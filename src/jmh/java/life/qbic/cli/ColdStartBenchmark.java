@@ -0,0 +1,50 @@
+package life.qbic.cli;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the first call of each step in a fresh JVM, which is what short-lived tools pay on every
+ * start. Every measurement runs in its own fork without warmup, so class loading, annotation
+ * scanning and interpretation are included.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ColdStartBenchmark {
+
+  @Benchmark
+  public NoOpCommand parseArguments() {
+    return AbstractCommand.parseArguments(NoOpCommand.class, NoOpCommand.ARGS);
+  }
+
+  @Benchmark
+  public NoOpCommand createDummyCommand() {
+    return AbstractCommand.createDummyCommand(NoOpCommand.class);
+  }
+
+  @Benchmark
+  public ToolMetadata extractToolMetadata() {
+    return new ToolExecutor().extractToolMetadata();
+  }
+
+  @Benchmark
+  public boolean handleCommonParameters() {
+    final ToolExecutor toolExecutor = new ToolExecutor();
+    return toolExecutor.handleCommonParameters(toolExecutor.extractToolMetadata(),
+        AbstractCommand.parseArguments(NoOpCommand.class, NoOpCommand.ARGS));
+  }
+
+  @Benchmark
+  public void invoke() {
+    new ToolExecutor().invoke(NoOpTool.class, NoOpCommand.class, NoOpCommand.ARGS);
+  }
+}
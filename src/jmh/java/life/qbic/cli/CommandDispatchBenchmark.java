@@ -0,0 +1,76 @@
+package life.qbic.cli;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Steady-state cost of the steps {@link ToolExecutor#invoke} runs through before a tool is
+ * executed.
+ * <p>
+ * {@link ToolExecutor#invoke} registers a shutdown hook per call, so it is measured in batches of a
+ * bounded size instead of in a timed loop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CommandDispatchBenchmark {
+
+  private ToolExecutor toolExecutor;
+  private ToolMetadata toolMetadata;
+  private NoOpCommand plainCommand;
+  private NoOpCommand versionCommand;
+
+  @Setup
+  public void setUp() {
+    toolExecutor = new ToolExecutor();
+    toolMetadata = toolExecutor.extractToolMetadata();
+    plainCommand = AbstractCommand.parseArguments(NoOpCommand.class, NoOpCommand.ARGS);
+    versionCommand = AbstractCommand.parseArguments(NoOpCommand.class,
+        new String[]{"-i", "input.tsv", "--version"});
+  }
+
+  @Benchmark
+  public NoOpCommand parseArguments() {
+    return AbstractCommand.parseArguments(NoOpCommand.class, NoOpCommand.ARGS);
+  }
+
+  @Benchmark
+  public NoOpCommand createDummyCommand() {
+    return AbstractCommand.createDummyCommand(NoOpCommand.class);
+  }
+
+  @Benchmark
+  public ToolMetadata extractToolMetadata() {
+    return toolExecutor.extractToolMetadata();
+  }
+
+  @Benchmark
+  public boolean handleCommonParameters() {
+    return toolExecutor.handleCommonParameters(toolMetadata, plainCommand);
+  }
+
+  @Benchmark
+  public boolean handleCommonParametersWithVersion() {
+    return toolExecutor.handleCommonParameters(toolMetadata, versionCommand);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 5, batchSize = 200)
+  @Measurement(iterations = 10, batchSize = 200)
+  public void invoke() {
+    toolExecutor.invoke(NoOpTool.class, NoOpCommand.class, NoOpCommand.ARGS);
+  }
+}
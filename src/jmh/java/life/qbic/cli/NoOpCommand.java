@@ -0,0 +1,22 @@
+package life.qbic.cli;
+
+import groovyjarjarpicocli.CommandLine.Command;
+import groovyjarjarpicocli.CommandLine.Option;
+
+/**
+ * Command with a few typical options, used by the benchmarks.
+ */
+@Command(name = "no-op", description = "Does nothing, used to benchmark the command-line handling.")
+public class NoOpCommand extends AbstractCommand {
+
+  static final String[] ARGS = {"-i", "input.tsv", "--threads", "4", "--verbose"};
+
+  @Option(names = {"-i", "--input"}, description = "Input file.", required = true)
+  public String input;
+
+  @Option(names = {"-t", "--threads"}, description = "Number of threads.")
+  public int threads = 1;
+
+  @Option(names = {"--verbose"}, description = "Verbose output.")
+  public boolean verbose;
+}
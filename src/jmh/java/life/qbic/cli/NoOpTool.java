@@ -0,0 +1,17 @@
+package life.qbic.cli;
+
+/**
+ * Tool that returns immediately, so that benchmarks of {@link ToolExecutor#invoke} only measure the
+ * executor itself.
+ */
+public class NoOpTool extends QBiCTool<NoOpCommand> {
+
+  public NoOpTool(final NoOpCommand command) {
+    super(command);
+  }
+
+  @Override
+  public void execute() {
+    // nothing to do
+  }
+}
@@ -0,0 +1,102 @@
+package life.qbic.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Heap footprint and build time of a {@link CompactFileTree} compared to the nested maps the
+ * parsers built before, one map with name, path and children or file type per node.
+ * <p>
+ * The retained size of both representations is measured with JOL once per fork and printed
+ * together with the ratio, the benchmark methods measure the time to walk the directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileTreeFootprintBenchmark {
+
+  private static final int FILES_PER_DIRECTORY = 100;
+
+  @Param({"10000", "100000"})
+  public int fileCount;
+
+  private Path root;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    root = Files.createTempDirectory("file-tree-footprint");
+    for (int i = 0; i < fileCount; i++) {
+      Path directory = root.resolve(String.format("fastq_pass/barcode%03d", i / FILES_PER_DIRECTORY));
+      if (i % FILES_PER_DIRECTORY == 0) {
+        Files.createDirectories(directory);
+      }
+      Files.createFile(directory.resolve(String.format("PAE12345_pass_barcode%03d_%d.fastq.gz",
+          i / FILES_PER_DIRECTORY, i)));
+    }
+    long compactBytes = GraphLayout.parseInstance(buildCompactTree()).totalSize();
+    long nestedBytes = GraphLayout.parseInstance(buildNestedMaps()).totalSize();
+    System.out.printf("%n%d files: compact tree %d bytes, nested maps %d bytes, %.1f times smaller%n",
+        fileCount, compactBytes, nestedBytes, (double) nestedBytes / compactBytes);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public CompactFileTree buildCompactTree() throws IOException {
+    return new CompactFileTree.Builder(root).build();
+  }
+
+  @Benchmark
+  public Map<String, Object> buildNestedMaps() throws IOException {
+    return toNestedMap(root);
+  }
+
+  private Map<String, Object> toNestedMap(Path path) throws IOException {
+    Map<String, Object> node = new LinkedHashMap<>();
+    node.put("name", path.getFileName().toString());
+    node.put("path", path.equals(root) ? "./" : "./" + root.relativize(path));
+    if (Files.isDirectory(path)) {
+      List<Map<String, Object>> children = new ArrayList<>();
+      try (Stream<Path> entries = Files.list(path)) {
+        for (Path entry : (Iterable<Path>) entries::iterator) {
+          children.add(toNestedMap(entry));
+        }
+      }
+      node.put("children", children);
+    } else {
+      String name = path.getFileName().toString();
+      node.put("fileType", name.substring(name.lastIndexOf('.') + 1));
+    }
+    return node;
+  }
+}
@@ -0,0 +1,832 @@
+package life.qbic.datasets.index
+
+import groovy.transform.CompileStatic
+
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.channels.FileLock
+import java.nio.channels.OverlappingFileLockException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+/**
+ * <h1>Persistent index from QBiC sample codes to the datasets containing them</h1>
+ * <br>
+ * <p>Maps sample codes like <code>QMFPJ007AU</code> to dataset roots and the files or folders of the
+ * datasets the codes were found in. Dataset roots are identified by their URI, so datasets in
+ * different archives or on different file systems are kept apart. The index is filled by the parsers
+ * after a successful parse if it is set in the {@link life.qbic.datasets.parsers.ParseOptions}.
+ * Indexing a dataset again replaces its previous entries.</p>
+ *
+ * <p>Every sample code consists of ten characters out of <code>0-9</code> and <code>A-Z</code> and is
+ * stored as base 36 number in a <code>long</code>, which keeps the lexicographic order. The entries are
+ * kept in runs of sorted primitive arrays of codes, dataset ids and file ids, so a lookup by sample code,
+ * code prefix or project code is a binary search per run followed by a scan over the matching entries.
+ * New entries are collected in an unsorted buffer that is sorted into a new run once it is full or
+ * before a lookup. A run is merged with the previous one once that one is at most twice as large, so
+ * there are only logarithmically many runs and every entry takes part in logarithmically many merges.
+ * Opening the index sorts all entries of the log once.</p>
+ *
+ * <p>All changes are appended to a log file in the index directory. The records of one dataset end
+ * with a commit record and are flushed together. Opening the index replays the log and applies the
+ * records of a dataset only once its commit record was read, the records of an interrupted write
+ * are discarded. {@link #compact()} rewrites the log without the entries of removed datasets.</p>
+ *
+ * <p>An opened index holds an exclusive lock on its directory until it is closed, so only one
+ * process at a time writes to the log.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class SampleIdIndex implements Closeable {
+
+    /**
+     * Finds QBiC sample codes: the letter Q, a project code of four characters, three digits, a letter
+     * and a checksum character, not surrounded by further letters or digits
+     */
+    static final Pattern SAMPLE_CODE = Pattern.compile("(?<![A-Za-z0-9])Q[A-Z0-9]{4}[0-9]{3}[A-Z][A-Z0-9](?![A-Za-z0-9])")
+
+    /**
+     * The name of the log file in the index directory
+     */
+    static final String LOG_FILE_NAME = "sample-id-index.log"
+
+    /**
+     * The name of the file in the index directory that is locked while the index is open
+     */
+    static final String LOCK_FILE_NAME = "sample-id-index.lock"
+
+    private static final Pattern PROJECT_CODE = Pattern.compile("Q[A-Z0-9]{4}")
+    private static final int CODE_LENGTH = 10
+    private static final int RADIX = 36
+    private static final int MAGIC = 0x51534949
+    private static final int VERSION = 2
+    private static final int DATASET_RECORD = 1
+    private static final int FILE_RECORD = 2
+    private static final int ENTRY_RECORD = 3
+    private static final int REMOVAL_RECORD = 4
+    private static final int COMMIT_RECORD = 5
+    private static final int BUFFER_CAPACITY = 8192
+
+    /**
+     * The directories of the indexes opened in this JVM. They are checked before the lock file is
+     * touched, as closing another channel of a locked file may release the lock on some platforms.
+     */
+    private static final Set<Path> OPEN_DIRECTORIES = new HashSet<>()
+
+    private final Path directory
+    private final Path logFile
+    private final FileChannel lockChannel
+    private final FileLock lock
+    private FileChannel logChannel
+    private DataOutputStream log
+    private long committedLength
+
+    private final List<String> datasetRoots = []
+    private final Map<String, Integer> currentDatasetIds = new HashMap<>()
+    private final BitSet removedDatasets = new BitSet()
+    private final List<String> files = []
+    private final Map<String, Integer> fileIds = new HashMap<>()
+
+    /**
+     * The sorted runs of entries, larger and older runs first
+     */
+    private final List<Run> runs = []
+    private EntryList buffer = new EntryList()
+
+    private SampleIdIndex(Path directory, FileChannel lockChannel, FileLock lock) {
+        this.directory = directory
+        this.logFile = directory.resolve(LOG_FILE_NAME)
+        this.lockChannel = lockChannel
+        this.lock = lock
+    }
+
+    /**
+     * Opens the index stored in a directory, the directory and the index are created if necessary.
+     * Waits until no other process holds the index open.
+     * @param directory the directory of the index
+     * @return the opened index
+     * @throws IOException if the index cannot be read or created, or is already open in this JVM
+     * @since 1.19.0
+     */
+    static SampleIdIndex open(Path directory) throws IOException {
+        Files.createDirectories(directory)
+        Path indexDirectory = directory.toRealPath()
+        synchronized (OPEN_DIRECTORIES) {
+            if (!OPEN_DIRECTORIES.add(indexDirectory)) {
+                throw new IOException("The sample id index in ${directory} is already open")
+            }
+        }
+        FileChannel lockChannel = null
+        try {
+            lockChannel = FileChannel.open(indexDirectory.resolve(LOCK_FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+            FileLock lock
+            try {
+                lock = lockChannel.lock()
+            } catch (OverlappingFileLockException ignored) {
+                throw new IOException("The sample id index in ${directory} is already open")
+            }
+            SampleIdIndex index = new SampleIdIndex(indexDirectory, lockChannel, lock)
+            index.load()
+            return index
+        } catch (IOException | RuntimeException e) {
+            lockChannel?.close()
+            synchronized (OPEN_DIRECTORIES) {
+                OPEN_DIRECTORIES.remove(indexDirectory)
+            }
+            throw e
+        }
+    }
+
+    /**
+     * Finds all sample codes in a text
+     * @param text e.g. the content of a <code>sample_ids.txt</code> file or a folder name
+     * @return the sample codes in the order of their first appearance
+     * @since 1.19.0
+     */
+    static Set<String> findSampleCodes(CharSequence text) {
+        Set<String> sampleCodes = new LinkedHashSet<>()
+        Matcher matcher = SAMPLE_CODE.matcher(text)
+        while (matcher.find()) {
+            sampleCodes.add(matcher.group())
+        }
+        return sampleCodes
+    }
+
+    /**
+     * Indexes the sample codes of a dataset and replaces the previous entries of the dataset
+     * @param datasetRoot the root path of the dataset
+     * @param sampleCodesPerFile the sample codes per path of a file or folder relative to the dataset root
+     * @throws IOException if the change cannot be written to the log
+     * @throws IllegalArgumentException if one of the codes is not a QBiC sample code
+     * @since 1.19.0
+     */
+    synchronized void indexDataset(Path datasetRoot, Map<String, ? extends Collection<String>> sampleCodesPerFile) throws IOException {
+        for (Collection<String> sampleCodes : sampleCodesPerFile.values()) {
+            for (String sampleCode : sampleCodes) {
+                encode(sampleCode)
+            }
+        }
+        String root = keyOf(datasetRoot)
+        Batch batch = new Batch()
+        Integer previousId = currentDatasetIds.get(root)
+        if (previousId != null) {
+            batch.removals.add(previousId)
+        }
+        addEntries(batch, root, sampleCodesPerFile)
+        commit(batch)
+    }
+
+    /**
+     * Removes all entries of a dataset
+     * @param datasetRoot the root path of the dataset
+     * @throws IOException if the change cannot be written to the log
+     * @since 1.19.0
+     */
+    synchronized void removeDataset(Path datasetRoot) throws IOException {
+        Integer previousId = currentDatasetIds.get(keyOf(datasetRoot))
+        if (previousId != null) {
+            Batch batch = new Batch()
+            batch.removals.add(previousId)
+            commit(batch)
+        }
+    }
+
+    /**
+     * @param sampleCode a QBiC sample code, e.g. <code>QMFPJ007AU</code>
+     * @return the entries of the sample code, sorted by dataset root and file
+     * @since 1.19.0
+     */
+    synchronized List<Entry> findBySampleCode(String sampleCode) {
+        long code = encode(sampleCode)
+        return find(code, code)
+    }
+
+    /**
+     * @param prefix the beginning of sample codes, e.g. <code>QMFPJ00</code>
+     * @return the entries of all sample codes starting with the prefix, sorted by sample code, dataset root and file
+     * @since 1.19.0
+     */
+    synchronized List<Entry> findByPrefix(String prefix) {
+        String normalizedPrefix = prefix.toUpperCase(Locale.ROOT)
+        if (normalizedPrefix.length() > CODE_LENGTH || !(normalizedPrefix ==~ /[0-9A-Z]*/)) {
+            return []
+        }
+        long lowest = encode(normalizedPrefix.padRight(CODE_LENGTH, "0"), false)
+        long highest = encode(normalizedPrefix.padRight(CODE_LENGTH, "Z"), false)
+        return find(lowest, highest)
+    }
+
+    /**
+     * @param projectCode a QBiC project code, e.g. <code>QMFPJ</code>
+     * @return the entries of all sample codes of the project, sorted by sample code, dataset root and file
+     * @throws IllegalArgumentException if the project code is not a QBiC project code
+     * @since 1.19.0
+     */
+    synchronized List<Entry> findByProject(String projectCode) {
+        if (!PROJECT_CODE.matcher(projectCode).matches()) {
+            throw new IllegalArgumentException("${projectCode} is not a QBiC project code")
+        }
+        return findByPrefix(projectCode)
+    }
+
+    /**
+     * @param sampleCode a QBiC sample code
+     * @return the root URIs of the datasets containing the sample code
+     * @since 1.19.0
+     */
+    synchronized Set<String> findDatasets(String sampleCode) {
+        Set<String> roots = new TreeSet<>()
+        for (Entry entry : findBySampleCode(sampleCode)) {
+            roots.add(entry.datasetRoot)
+        }
+        return roots
+    }
+
+    /**
+     * @return the number of entries of datasets that were not removed
+     * @since 1.19.0
+     */
+    synchronized int size() {
+        flushBuffer()
+        int size = 0
+        for (Run run : runs) {
+            for (int i = 0; i < run.size; i++) {
+                if (!removedDatasets.get(run.datasets[i])) {
+                    size++
+                }
+            }
+        }
+        return size
+    }
+
+    /**
+     * Rewrites the log with the current entries only. Dataset and file ids are assigned anew.
+     * @throws IOException if the log cannot be written
+     * @since 1.19.0
+     */
+    synchronized void compact() throws IOException {
+        flushBuffer()
+        Map<String, Map<String, Set<String>>> entriesPerDataset = new LinkedHashMap<>()
+        for (Run run : runs) {
+            for (int i = 0; i < run.size; i++) {
+                if (removedDatasets.get(run.datasets[i])) {
+                    continue
+                }
+                String root = datasetRoots.get(run.datasets[i])
+                Map<String, Set<String>> sampleCodesPerFile = entriesPerDataset.get(root)
+                if (sampleCodesPerFile == null) {
+                    sampleCodesPerFile = new LinkedHashMap<>()
+                    entriesPerDataset.put(root, sampleCodesPerFile)
+                }
+                String file = files.get(run.fileNodes[i])
+                Set<String> sampleCodes = sampleCodesPerFile.get(file)
+                if (sampleCodes == null) {
+                    sampleCodes = new TreeSet<>()
+                    sampleCodesPerFile.put(file, sampleCodes)
+                }
+                sampleCodes.add(decode(run.codes[i]))
+            }
+        }
+        log.close()
+        Path compacted = logFile.resolveSibling(LOG_FILE_NAME + ".compacting")
+        Files.deleteIfExists(compacted)
+        datasetRoots.clear()
+        currentDatasetIds.clear()
+        removedDatasets.clear()
+        files.clear()
+        fileIds.clear()
+        runs.clear()
+        openLog(compacted, 0)
+        for (Map.Entry<String, Map<String, Set<String>>> dataset : entriesPerDataset.entrySet()) {
+            Batch batch = new Batch()
+            addEntries(batch, dataset.key, dataset.value)
+            commit(batch)
+        }
+        log.close()
+        Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING)
+        openLog(logFile, Files.size(logFile))
+    }
+
+    /**
+     * Flushes and closes the log and releases the lock of the index directory
+     * @since 1.19.0
+     */
+    @Override
+    synchronized void close() throws IOException {
+        try {
+            log.close()
+        } finally {
+            try {
+                lock.release()
+                lockChannel.close()
+            } finally {
+                synchronized (OPEN_DIRECTORIES) {
+                    OPEN_DIRECTORIES.remove(directory)
+                }
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        long validLength = Files.exists(logFile) ? replay() : 0L
+        // records after the last commit belong to an interrupted write and are cut off
+        openLog(logFile, validLength)
+        // all replayed entries are sorted at once
+        flushBuffer()
+    }
+
+    /*
+     * Replays the log and returns the length of its valid part, which ends with the last commit record
+     */
+    private long replay() throws IOException {
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(Files.newInputStream(logFile), 1 << 16))
+        DataInputStream input = new DataInputStream(counter)
+        long validLength = 0
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("${logFile} is not a sample id index of version ${VERSION}")
+            }
+            validLength = counter.count
+            Batch pending = new Batch()
+            while (true) {
+                int record = input.read()
+                if (record == -1) {
+                    return validLength
+                }
+                switch (record) {
+                    case DATASET_RECORD:
+                        pending.roots.add(input.readUTF())
+                        break
+                    case FILE_RECORD:
+                        pending.files.add(input.readUTF())
+                        break
+                    case ENTRY_RECORD:
+                        long code = input.readLong()
+                        int datasetId = input.readInt()
+                        int fileId = input.readInt()
+                        pending.entries.add(code, datasetId, fileId)
+                        break
+                    case REMOVAL_RECORD:
+                        pending.removals.add(input.readInt())
+                        break
+                    case COMMIT_RECORD:
+                        apply(pending)
+                        pending = new Batch()
+                        validLength = counter.count
+                        break
+                    default:
+                        throw new IOException("Unknown record ${record} in ${logFile} at byte ${counter.count - 1}")
+                }
+            }
+        } catch (EOFException ignored) {
+            // the records after the last commit were not written completely
+            return validLength
+        } finally {
+            input.close()
+        }
+    }
+
+    /*
+     * Opens a log for appending, everything after the valid length is cut off
+     */
+    private void openLog(Path file, long validLength) throws IOException {
+        logChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+        if (logChannel.size() > validLength) {
+            logChannel.truncate(validLength)
+        }
+        logChannel.position(validLength)
+        log = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(logChannel), 1 << 16))
+        if (validLength == 0) {
+            log.writeInt(MAGIC)
+            log.writeInt(VERSION)
+            log.flush()
+        }
+        committedLength = logChannel.size()
+    }
+
+    /*
+     * Writes the records of a batch followed by a commit record and applies the batch once it was
+     * flushed. A failed write is cut off the log, so later batches do not follow a partial one.
+     */
+    private void commit(Batch batch) throws IOException {
+        try {
+            for (Integer removedId : batch.removals) {
+                log.write(REMOVAL_RECORD)
+                log.writeInt(removedId.intValue())
+            }
+            for (String root : batch.roots) {
+                log.write(DATASET_RECORD)
+                log.writeUTF(root)
+            }
+            for (String file : batch.files) {
+                log.write(FILE_RECORD)
+                log.writeUTF(file)
+            }
+            EntryList entries = batch.entries
+            for (int i = 0; i < entries.size; i++) {
+                log.write(ENTRY_RECORD)
+                log.writeLong(entries.codes[i])
+                log.writeInt(entries.datasets[i])
+                log.writeInt(entries.fileNodes[i])
+            }
+            log.write(COMMIT_RECORD)
+            log.flush()
+        } catch (IOException e) {
+            discardUncommitted()
+            throw e
+        }
+        committedLength = logChannel.position()
+        apply(batch)
+        if (buffer.size >= BUFFER_CAPACITY) {
+            flushBuffer()
+        }
+    }
+
+    private void discardUncommitted() {
+        try {
+            logChannel.truncate(committedLength)
+            logChannel.position(committedLength)
+        } catch (IOException ignored) {
+            // the records after the last commit are discarded when the index is opened again
+        }
+        log = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(logChannel), 1 << 16))
+    }
+
+    private void apply(Batch batch) {
+        for (Integer removedId : batch.removals) {
+            removedDatasets.set(removedId.intValue())
+            String root = datasetRoots.get(removedId.intValue())
+            if (currentDatasetIds.get(root) == removedId) {
+                currentDatasetIds.remove(root)
+            }
+        }
+        for (String root : batch.roots) {
+            currentDatasetIds.put(root, datasetRoots.size())
+            datasetRoots.add(root)
+        }
+        for (String file : batch.files) {
+            fileIds.put(file, files.size())
+            files.add(file)
+        }
+        EntryList entries = batch.entries
+        for (int i = 0; i < entries.size; i++) {
+            buffer.add(entries.codes[i], entries.datasets[i], entries.fileNodes[i])
+        }
+    }
+
+    private void addEntries(Batch batch, String root, Map<String, ? extends Collection<String>> sampleCodesPerFile) {
+        int datasetId = datasetRoots.size() + batch.roots.size()
+        batch.roots.add(root)
+        for (Map.Entry<String, ? extends Collection<String>> file : sampleCodesPerFile.entrySet()) {
+            Integer fileId = fileIds.get(file.key)
+            if (fileId == null) {
+                fileId = files.size() + batch.files.size()
+                batch.files.add(file.key)
+            }
+            for (String sampleCode : new TreeSet<String>(file.value)) {
+                batch.entries.add(encode(sampleCode), datasetId, fileId.intValue())
+            }
+        }
+    }
+
+    /*
+     * Sorts the buffered entries into a new run and merges the newest runs while the previous run is
+     * at most twice as large, entries of removed datasets are dropped on the way
+     */
+    private void flushBuffer() {
+        if (buffer.size == 0) {
+            return
+        }
+        Run run = sortedRun(buffer)
+        buffer = new EntryList()
+        if (run.size > 0) {
+            runs.add(run)
+        }
+        while (runs.size() > 1 && runs.get(runs.size() - 2).size <= 2 * runs.get(runs.size() - 1).size) {
+            Run newer = runs.remove(runs.size() - 1)
+            Run older = runs.remove(runs.size() - 1)
+            runs.add(mergeRuns(older, newer))
+        }
+    }
+
+    private Run sortedRun(EntryList entries) {
+        int[] order = sortOrder(entries)
+        EntryList sorted = new EntryList(entries.size)
+        for (int i = 0; i < entries.size; i++) {
+            int next = order[i]
+            if (!removedDatasets.get(entries.datasets[next])) {
+                sorted.add(entries.codes[next], entries.datasets[next], entries.fileNodes[next])
+            }
+        }
+        return new Run(sorted)
+    }
+
+    private Run mergeRuns(Run older, Run newer) {
+        EntryList merged = new EntryList(older.size + newer.size)
+        int first = 0
+        int second = 0
+        while (first < older.size || second < newer.size) {
+            boolean takeFirst = second == newer.size || (first < older.size && compare(older.codes[first], older.datasets[first],
+                    older.fileNodes[first], newer.codes[second], newer.datasets[second], newer.fileNodes[second]) <= 0)
+            Run source = takeFirst ? older : newer
+            int position = takeFirst ? first++ : second++
+            if (!removedDatasets.get(source.datasets[position])) {
+                merged.add(source.codes[position], source.datasets[position], source.fileNodes[position])
+            }
+        }
+        return new Run(merged)
+    }
+
+    /*
+     * A bottom-up merge sort of the entry positions, so no entry is boxed
+     */
+    private static int[] sortOrder(EntryList entries) {
+        int count = entries.size
+        int[] order = new int[count]
+        for (int i = 0; i < count; i++) {
+            order[i] = i
+        }
+        int[] scratch = new int[count]
+        for (int width = 1; width < count; width *= 2) {
+            for (int start = 0; start < count; start += 2 * width) {
+                int middle = Math.min(start + width, count)
+                int end = Math.min(start + 2 * width, count)
+                int left = start
+                int right = middle
+                int target = start
+                while (left < middle && right < end) {
+                    int a = order[left]
+                    int b = order[right]
+                    if (compare(entries.codes[a], entries.datasets[a], entries.fileNodes[a],
+                            entries.codes[b], entries.datasets[b], entries.fileNodes[b]) <= 0) {
+                        scratch[target++] = a
+                        left++
+                    } else {
+                        scratch[target++] = b
+                        right++
+                    }
+                }
+                while (left < middle) {
+                    scratch[target++] = order[left++]
+                }
+                while (right < end) {
+                    scratch[target++] = order[right++]
+                }
+            }
+            int[] swap = order
+            order = scratch
+            scratch = swap
+        }
+        return order
+    }
+
+    private List<Entry> find(long lowest, long highest) {
+        flushBuffer()
+        EntryList matches = new EntryList()
+        for (Run run : runs) {
+            for (int i = run.lowerBound(lowest); i < run.size && run.codes[i] <= highest; i++) {
+                if (!removedDatasets.get(run.datasets[i])) {
+                    matches.add(run.codes[i], run.datasets[i], run.fileNodes[i])
+                }
+            }
+        }
+        // matches of several runs are brought into the order of a single run
+        int[] order = runs.size() > 1 ? sortOrder(matches) : null
+        List<Entry> entries = new ArrayList<>(matches.size)
+        for (int i = 0; i < matches.size; i++) {
+            int next = order == null ? i : order[i]
+            entries.add(toEntry(matches.codes[next], matches.datasets[next], matches.fileNodes[next]))
+        }
+        return entries
+    }
+
+    private Entry toEntry(long code, int datasetId, int fileId) {
+        return new Entry(decode(code), datasetRoots.get(datasetId), files.get(fileId))
+    }
+
+    private static int compare(long firstCode, int firstDataset, int firstFile, long secondCode, int secondDataset, int secondFile) {
+        int result = Long.compare(firstCode, secondCode)
+        if (result == 0) {
+            result = Integer.compare(firstDataset, secondDataset)
+        }
+        if (result == 0) {
+            result = Integer.compare(firstFile, secondFile)
+        }
+        return result
+    }
+
+    /*
+     * Identifies a dataset by the URI of its root, which includes the archive of a dataset in a zip file
+     */
+    private static String keyOf(Path datasetRoot) {
+        Path root = datasetRoot.toAbsolutePath().normalize()
+        String uri = root.toUri().toString()
+        // existing directories are reported with a trailing slash, except for file system roots it is dropped
+        if (uri.endsWith("/") && root.getFileName() != null) {
+            uri = uri.substring(0, uri.length() - 1)
+        }
+        return uri
+    }
+
+    private static long encode(String sampleCode) {
+        return encode(sampleCode, true)
+    }
+
+    private static long encode(String code, boolean validate) {
+        if (validate && !SAMPLE_CODE.matcher(code).matches()) {
+            throw new IllegalArgumentException("${code} is not a QBiC sample code")
+        }
+        long value = 0
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            value = value * RADIX + Character.digit(code.charAt(i), RADIX)
+        }
+        return value
+    }
+
+    private static String decode(long value) {
+        char[] characters = new char[CODE_LENGTH]
+        long remainder = value
+        for (int i = CODE_LENGTH - 1; i >= 0; i--) {
+            characters[i] = Character.toUpperCase(Character.forDigit((int) (remainder % RADIX), RADIX))
+            remainder = Math.floorDiv(remainder, (long) RADIX)
+        }
+        return new String(characters)
+    }
+
+    /**
+     * A sample code found in a file or folder of a dataset
+     *
+     * @since 1.19.0
+     */
+    static class Entry {
+
+        private final String sampleCode
+        private final String datasetRoot
+        private final String filePath
+
+        Entry(String sampleCode, String datasetRoot, String filePath) {
+            this.sampleCode = sampleCode
+            this.datasetRoot = datasetRoot
+            this.filePath = filePath
+        }
+
+        /**
+         * @return the sample code
+         * @since 1.19.0
+         */
+        String getSampleCode() {
+            return sampleCode
+        }
+
+        /**
+         * @return the URI of the root of the dataset, e.g. <code>file:///data/QABCD_run</code>
+         * @since 1.19.0
+         */
+        String getDatasetRoot() {
+            return datasetRoot
+        }
+
+        /**
+         * @return the path of the file or folder relative to the dataset root, e.g. <code>./QABCD_sample_ids.txt</code>
+         * @since 1.19.0
+         */
+        String getFilePath() {
+            return filePath
+        }
+
+        @Override
+        boolean equals(Object other) {
+            if (!(other instanceof Entry)) {
+                return false
+            }
+            Entry entry = (Entry) other
+            return sampleCode == entry.sampleCode && datasetRoot == entry.datasetRoot && filePath == entry.filePath
+        }
+
+        @Override
+        int hashCode() {
+            return Objects.hash(sampleCode, datasetRoot, filePath)
+        }
+
+        @Override
+        String toString() {
+            return "${sampleCode} in ${datasetRoot}/${filePath}"
+        }
+    }
+
+    /**
+     * The records of one commit
+     */
+    private static class Batch {
+
+        final List<Integer> removals = []
+        final List<String> roots = []
+        final List<String> files = []
+        final EntryList entries = new EntryList()
+    }
+
+    /**
+     * Growing parallel arrays of sample codes, dataset ids and file ids
+     */
+    private static class EntryList {
+
+        long[] codes
+        int[] datasets
+        int[] fileNodes
+        int size
+
+        EntryList() {
+            this(16)
+        }
+
+        EntryList(int capacity) {
+            int initialCapacity = Math.max(capacity, 1)
+            codes = new long[initialCapacity]
+            datasets = new int[initialCapacity]
+            fileNodes = new int[initialCapacity]
+        }
+
+        void add(long code, int datasetId, int fileId) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2)
+                datasets = Arrays.copyOf(datasets, size * 2)
+                fileNodes = Arrays.copyOf(fileNodes, size * 2)
+            }
+            codes[size] = code
+            datasets[size] = datasetId
+            fileNodes[size] = fileId
+            size++
+        }
+    }
+
+    /**
+     * Entries sorted by sample code, dataset id and file id
+     */
+    private static class Run {
+
+        final long[] codes
+        final int[] datasets
+        final int[] fileNodes
+        final int size
+
+        Run(EntryList sorted) {
+            this.codes = Arrays.copyOf(sorted.codes, sorted.size)
+            this.datasets = Arrays.copyOf(sorted.datasets, sorted.size)
+            this.fileNodes = Arrays.copyOf(sorted.fileNodes, sorted.size)
+            this.size = sorted.size
+        }
+
+        int lowerBound(long code) {
+            int low = 0
+            int high = size
+            while (low < high) {
+                int middle = (low + high) >>> 1
+                if (codes[middle] < code) {
+                    low = middle + 1
+                } else {
+                    high = middle
+                }
+            }
+            return low
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        long count
+
+        CountingInputStream(InputStream input) {
+            super(input)
+        }
+
+        @Override
+        int read() throws IOException {
+            int value = super.read()
+            if (value != -1) {
+                count++
+            }
+            return value
+        }
+
+        @Override
+        int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length)
+            if (read > 0) {
+                count += read
+            }
+            return read
+        }
+
+        @Override
+        long skip(long n) throws IOException {
+            long skipped = super.skip(n)
+            count += skipped
+            return skipped
+        }
+    }
+}
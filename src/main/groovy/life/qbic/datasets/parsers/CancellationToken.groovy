@@ -0,0 +1,30 @@
+package life.qbic.datasets.parsers
+
+/**
+ * Allows to cancel a running parse from another thread.
+ *
+ * <p>Parsers check the token cooperatively between file system operations and fail with a
+ * {@link ParseCancelledException} once the token is cancelled.</p>
+ *
+ * @since 1.19.0
+ */
+class CancellationToken {
+
+    private volatile boolean cancelled
+
+    /**
+     * Requests the cancellation of all parses using this token
+     * @since 1.19.0
+     */
+    void cancel() {
+        cancelled = true
+    }
+
+    /**
+     * @return true if the cancellation was requested
+     * @since 1.19.0
+     */
+    boolean isCancelled() {
+        return cancelled
+    }
+}
@@ -0,0 +1,129 @@
+package life.qbic.datasets.parsers
+
+import groovy.transform.CompileStatic
+
+/**
+ * An event of a {@link DatasetEventStream}: either a file found during the walk or the final
+ * outcome of the parse.
+ *
+ * @param <T> the type of the parsed dataset
+ * @since 1.19.0
+ */
+@CompileStatic
+class DatasetEvent<T> {
+
+    /**
+     * The kinds of events of a {@link DatasetEventStream}
+     * @since 1.19.0
+     */
+    enum Kind {
+        /**
+         * A file was found, the parse continues
+         */
+        FILE_DISCOVERED,
+        /**
+         * The dataset was parsed and validated, this is the last event
+         */
+        COMPLETED,
+        /**
+         * The parse or the validation failed, this is the last event
+         */
+        FAILED
+    }
+
+    private final Kind kind
+    private final String relativePath
+    private final String fileType
+    private final long size
+    private final T result
+    private final Throwable error
+
+    private DatasetEvent(Kind kind, String relativePath, String fileType, long size, T result, Throwable error) {
+        this.kind = kind
+        this.relativePath = relativePath
+        this.fileType = fileType
+        this.size = size
+        this.result = result
+        this.error = error
+    }
+
+    static <T> DatasetEvent<T> fileDiscovered(String relativePath, String fileType, long size) {
+        return new DatasetEvent<T>(Kind.FILE_DISCOVERED, relativePath, fileType, size, null, null)
+    }
+
+    static <T> DatasetEvent<T> completed(T result) {
+        return new DatasetEvent<T>(Kind.COMPLETED, null, null, 0L, result, null)
+    }
+
+    static <T> DatasetEvent<T> failed(Throwable error) {
+        return new DatasetEvent<T>(Kind.FAILED, null, null, 0L, null, error)
+    }
+
+    /**
+     * @return the kind of the event
+     * @since 1.19.0
+     */
+    Kind getKind() {
+        return kind
+    }
+
+    /**
+     * @return true if no further events follow
+     * @since 1.19.0
+     */
+    boolean isFinal() {
+        return kind != Kind.FILE_DISCOVERED
+    }
+
+    /**
+     * @return the path of the discovered file relative to the dataset root, null for final events
+     * @since 1.19.0
+     */
+    String getRelativePath() {
+        return relativePath
+    }
+
+    /**
+     * @return the file type of the discovered file, null for final events
+     * @since 1.19.0
+     */
+    String getFileType() {
+        return fileType
+    }
+
+    /**
+     * @return the size of the discovered file in bytes, 0 for final events
+     * @since 1.19.0
+     */
+    long getSize() {
+        return size
+    }
+
+    /**
+     * @return the parsed dataset of a {@link Kind#COMPLETED} event, null otherwise
+     * @since 1.19.0
+     */
+    T getResult() {
+        return result
+    }
+
+    /**
+     * @return the cause of a {@link Kind#FAILED} event, e.g. a {@link DatasetValidationException}, null otherwise
+     * @since 1.19.0
+     */
+    Throwable getError() {
+        return error
+    }
+
+    @Override
+    String toString() {
+        switch (kind) {
+            case Kind.FILE_DISCOVERED:
+                return "${kind} ${relativePath} (${fileType}, ${size} bytes)"
+            case Kind.FAILED:
+                return "${kind} ${error}"
+            default:
+                return kind.toString()
+        }
+    }
+}
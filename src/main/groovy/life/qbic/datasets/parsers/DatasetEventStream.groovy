@@ -0,0 +1,167 @@
+package life.qbic.datasets.parsers
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Path
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.TimeUnit
+import java.util.function.BiFunction
+
+/**
+ * <h1>Publishes the files of a dataset while it is parsed</h1>
+ * <br>
+ * <p>The parse runs on a background thread. Every file accepted during the directory walk is
+ * published as a {@link DatasetEvent.Kind#FILE_DISCOVERED} event, so consumers can start to
+ * checksum or upload files before the walk has finished. The last event is either
+ * {@link DatasetEvent.Kind#COMPLETED} with the validated dataset or {@link DatasetEvent.Kind#FAILED}
+ * with the cause, in which case work already done for the published files should be rolled back.</p>
+ *
+ * <p>Only a {@link ScanMode#FULL} scan visits every file, so the stream rejects options with
+ * another scan mode instead of completing without the files of summarized directories.</p>
+ *
+ * <p>The events are kept in a bounded queue. If the consumer falls behind, the walk pauses until
+ * there is room in the queue again.</p>
+ *
+ * <pre>
+ * DatasetEventStream&lt;MaxQuantRunResult&gt; stream = DatasetEventStream.start(root, new ParseOptions(),
+ *         DatasetEventStream.DEFAULT_CAPACITY, parser::parseFrom)
+ * DatasetEvent&lt;MaxQuantRunResult&gt; event = stream.take()
+ * while (!event.isFinal()) {
+ *     upload(event.getRelativePath())
+ *     event = stream.take()
+ * }
+ * </pre>
+ *
+ * @param <T> the type of the parsed dataset
+ * @since 1.19.0
+ */
+@CompileStatic
+class DatasetEventStream<T> implements Closeable {
+
+    /**
+     * The number of events that are buffered by default
+     */
+    static final int DEFAULT_CAPACITY = 1024
+
+    private final BlockingQueue<DatasetEvent<T>> events
+    private Thread producer
+    private volatile boolean closed
+    private boolean ended
+
+    private DatasetEventStream(int capacity) {
+        this.events = new ArrayBlockingQueue<>(capacity)
+    }
+
+    /**
+     * Starts to parse a dataset in the background
+     * @param root the root path of the dataset
+     * @param options the options of the parse, their file discovery listener is replaced by the stream
+     * @param capacity the maximal number of events that are buffered
+     * @param parse the parse to run, e.g. <code>MaxQuantParser::parseFrom</code>
+     * @return the stream of events of the parse
+     * @throws IllegalArgumentException if the scan mode of the options is not {@link ScanMode#FULL}
+     * @since 1.19.0
+     */
+    static <T> DatasetEventStream<T> start(Path root, ParseOptions options, int capacity, BiFunction<Path, ParseOptions, T> parse) {
+        if (options.getScanMode() != ScanMode.FULL) {
+            throw new IllegalArgumentException("Only a full scan publishes every file, got scan mode ${options.getScanMode()}")
+        }
+        DatasetEventStream<T> stream = new DatasetEventStream<T>(capacity)
+        options.fileDiscoveryListener({ String relativePath, String fileType, long size ->
+            stream.publishFile(relativePath, fileType, size)
+        } as FileDiscoveryListener)
+        stream.producer = new Thread({ stream.run(root, options, parse) } as Runnable, "dataset-event-stream")
+        stream.producer.setDaemon(true)
+        stream.producer.start()
+        return stream
+    }
+
+    private void run(Path root, ParseOptions options, BiFunction<Path, ParseOptions, T> parse) {
+        DatasetEvent<T> lastEvent
+        try {
+            lastEvent = DatasetEvent.completed(parse.apply(root, options))
+        } catch (Throwable e) {
+            lastEvent = DatasetEvent.failed(e)
+        }
+        if (closed) {
+            return
+        }
+        try {
+            events.put(lastEvent)
+        } catch (InterruptedException ignored) {
+            // the stream was closed while waiting for room, nobody takes the event anymore
+        }
+    }
+
+    private void publishFile(String relativePath, String fileType, long size) {
+        DatasetEvent<T> event = DatasetEvent.fileDiscovered(relativePath, fileType, size)
+        try {
+            events.put(event)
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt()
+            throw new ParseCancelledException("The event stream was closed")
+        }
+    }
+
+    /**
+     * Waits for the next event
+     * @return the next event
+     * @throws InterruptedException if the waiting thread is interrupted
+     * @throws IllegalStateException if the final event was already taken or the stream was closed
+     * @since 1.19.0
+     */
+    DatasetEvent<T> take() throws InterruptedException {
+        checkOpen()
+        return remember(events.take())
+    }
+
+    /**
+     * Waits a limited time for the next event
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the next event or null if no event arrived in time
+     * @throws InterruptedException if the waiting thread is interrupted
+     * @throws IllegalStateException if the final event was already taken or the stream was closed
+     * @since 1.19.0
+     */
+    DatasetEvent<T> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        checkOpen()
+        return remember(events.poll(timeout, unit))
+    }
+
+    /**
+     * @return true once the final event was taken
+     * @since 1.19.0
+     */
+    boolean isEnded() {
+        return ended
+    }
+
+    /**
+     * Stops the parse if it is still running and discards all events that were not taken
+     * @since 1.19.0
+     */
+    @Override
+    void close() {
+        closed = true
+        producer.interrupt()
+        events.clear()
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The event stream was closed")
+        }
+        if (ended) {
+            throw new IllegalStateException("The final event was already taken")
+        }
+    }
+
+    private DatasetEvent<T> remember(DatasetEvent<T> event) {
+        if (event != null && event.isFinal()) {
+            ended = true
+        }
+        return event
+    }
+}
@@ -23,6 +23,10 @@ interface DatasetParser<T> {
      * </pre>
      * you would need to provide <code>"/SomePath/MyDataset"</code> as path.</p>
      *
+     * <p>The path does not need to belong to the default file system. A dataset packed into an
+     * archive can be parsed without extracting it, by providing a path of a file system opened for
+     * the archive, e.g. <code>FileSystems.newFileSystem(zipFile, (ClassLoader) null).getPath("/MyDataset")</code>.</p>
+     *
      * @param root The root path of the dataset structure, represents the top level of the
      * hierarchical data set structure. This path must be absolute.
      * @return A successfully parsed and validated dataset
@@ -0,0 +1,37 @@
+package life.qbic.datasets.parsers
+
+/**
+ * Provides a {@link DatasetParser} together with a cheap check whether a directory contains
+ * the dataset the parser expects.
+ *
+ * <p>Implementations are registered in <code>META-INF/services/life.qbic.datasets.parsers.DatasetParserProvider</code>
+ * and picked up by the {@link DatasetParserRegistry}. They need a public constructor without arguments.</p>
+ *
+ * @since 1.19.0
+ */
+interface DatasetParserProvider {
+
+    /**
+     * @return a short human readable name of the dataset type, e.g. <code>maxQuant run result</code>
+     * @since 1.19.0
+     */
+    String getDatasetType()
+
+    /**
+     * Decides from the signature entries of a directory whether it contains the dataset of this provider.
+     * The decision must only be based on the names of a few entries, the content of files must not be read.
+     *
+     * @param rootListing the listing of the dataset root directory, subdirectories can be listed from it
+     * @return true if the directory looks like a dataset of this provider
+     * @throws IOException if a subdirectory cannot be listed
+     * @since 1.19.0
+     */
+    boolean matches(DirectoryListing rootListing) throws IOException
+
+    /**
+     * @return a parser for the dataset type of this provider
+     * @since 1.19.0
+     */
+    DatasetParser<?> createParser()
+
+}
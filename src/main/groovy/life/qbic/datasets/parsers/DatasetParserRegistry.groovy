@@ -0,0 +1,119 @@
+package life.qbic.datasets.parsers
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Detects the type of a dataset and hands it to the single matching parser.
+ *
+ * <p>The detection lists the dataset root and a few subdirectories with a bounded number of entries,
+ * so only the parser of the detected type walks and validates the whole dataset. Parsers are registered
+ * as {@link DatasetParserProvider} with the {@link ServiceLoader} mechanism.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class DatasetParserRegistry implements DatasetParser<Object> {
+
+    /**
+     * The maximal number of entries that are read per directory during detection
+     */
+    static final int DEFAULT_MAX_LISTED_ENTRIES = 1000
+
+    private final List<DatasetParserProvider> providers
+
+    private final int maxListedEntries
+
+    /**
+     * Creates a registry with all providers registered for the {@link ServiceLoader}
+     * @since 1.19.0
+     */
+    DatasetParserRegistry() {
+        this(loadProviders(), DEFAULT_MAX_LISTED_ENTRIES)
+    }
+
+    /**
+     * @param providers the providers to choose from
+     * @param maxListedEntries the maximal number of entries that are read per directory during detection
+     * @since 1.19.0
+     */
+    DatasetParserRegistry(List<DatasetParserProvider> providers, int maxListedEntries) {
+        this.providers = Collections.unmodifiableList(new ArrayList<>(providers))
+        this.maxListedEntries = maxListedEntries
+    }
+
+    private static List<DatasetParserProvider> loadProviders() {
+        List<DatasetParserProvider> providers = []
+        for (DatasetParserProvider provider : ServiceLoader.load(DatasetParserProvider, DatasetParserProvider.getClassLoader())) {
+            providers.add(provider)
+        }
+        return providers
+    }
+
+    /**
+     * @return the registered providers
+     * @since 1.19.0
+     */
+    List<DatasetParserProvider> getProviders() {
+        return providers
+    }
+
+    /**
+     * Determines the providers whose signature entries are present in the directory
+     * @param root the root path of the dataset
+     * @return the matching providers in the order of registration, empty if no provider matches
+     * @throws DataParserException if the root is not a directory or cannot be listed
+     * @since 1.19.0
+     */
+    List<DatasetParserProvider> detect(Path root) throws DataParserException {
+        if (!Files.isDirectory(root)) {
+            throw new DataParserException("Expected a directory at ${root}")
+        }
+        try {
+            DirectoryListing rootListing = DirectoryListing.of(root, maxListedEntries)
+            List<DatasetParserProvider> matches = []
+            for (DatasetParserProvider provider : providers) {
+                if (provider.matches(rootListing)) {
+                    matches.add(provider)
+                }
+            }
+            return matches
+        } catch (IOException e) {
+            throw new DataParserException("Could not list ${root}", e)
+        }
+    }
+
+    /**
+     * Determines the parser for a dataset
+     * @param root the root path of the dataset
+     * @return the parser of the only matching provider
+     * @throws DataParserException if no provider or more than one provider matches
+     * @since 1.19.0
+     */
+    DatasetParser<?> parserFor(Path root) throws DataParserException {
+        List<DatasetParserProvider> matches = detect(root)
+        if (matches.isEmpty()) {
+            throw new DataParserException("Unknown dataset type in ${root}")
+        }
+        if (matches.size() > 1) {
+            throw new DataParserException("Ambiguous dataset type in ${root}: ${matches*.datasetType.join(', ')}")
+        }
+        return matches.get(0).createParser()
+    }
+
+    /**
+     * Detects the dataset type and parses the dataset with the matching parser.
+     *
+     * @param root The root path of the dataset structure
+     * @return A successfully parsed and validated dataset of the detected type
+     * @throws DataParserException if the data type cannot be detected or the dataset cannot be parsed
+     * @throws DatasetValidationException if the data structure does not match the schema of the detected type
+     * @since 1.19.0
+     */
+    @Override
+    Object parseFrom(Path root) throws DataParserException, DatasetValidationException {
+        return parserFor(root).parseFrom(root)
+    }
+}
@@ -0,0 +1,166 @@
+package life.qbic.datasets.parsers
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.DirectoryStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.function.Predicate
+
+/**
+ * Shallow and bounded listing of a directory, used to detect the type of a dataset from a few
+ * signature entries without walking the whole directory tree.
+ *
+ * <p>At most a fixed number of entries is read per directory. Subdirectories are only listed on
+ * request and with the same bound.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class DirectoryListing {
+
+    private final Path directory
+    private final int maxEntries
+    private final Set<String> fileNames = new LinkedHashSet<>()
+    private final Set<String> directoryNames = new LinkedHashSet<>()
+    private final Map<String, DirectoryListing> subdirectories = new HashMap<>()
+    private boolean truncated
+
+    private DirectoryListing(Path directory, int maxEntries) {
+        this.directory = directory
+        this.maxEntries = maxEntries
+    }
+
+    /**
+     * Lists the entries of a directory
+     * @param directory the directory to list
+     * @param maxEntries the maximal number of entries that are read
+     * @return the listing of the directory
+     * @throws IOException if the directory cannot be listed
+     * @since 1.19.0
+     */
+    static DirectoryListing of(Path directory, int maxEntries) throws IOException {
+        DirectoryListing listing = new DirectoryListing(directory, maxEntries)
+        DirectoryStream<Path> entries = Files.newDirectoryStream(directory)
+        try {
+            int count = 0
+            for (Path entry : entries) {
+                if (count == maxEntries) {
+                    listing.truncated = true
+                    break
+                }
+                String name = fileName(entry)
+                if (Files.isDirectory(entry)) {
+                    listing.directoryNames.add(name)
+                } else {
+                    listing.fileNames.add(name)
+                }
+                count++
+            }
+        } finally {
+            entries.close()
+        }
+        return listing
+    }
+
+    /**
+     * The name of a directory entry without the trailing separator that zip file systems append
+     * to the names of directories
+     * @param path the path of the entry
+     * @return the name of the entry, an empty string for a root
+     * @since 1.19.0
+     */
+    static String fileName(Path path) {
+        Path fileName = path.getFileName()
+        if (fileName == null) {
+            return ""
+        }
+        String name = fileName.toString()
+        String separator = path.getFileSystem().getSeparator()
+        return name.endsWith(separator) ? name.substring(0, name.length() - separator.length()) : name
+    }
+
+    /**
+     * @return the listed directory
+     * @since 1.19.0
+     */
+    Path getDirectory() {
+        return directory
+    }
+
+    /**
+     * @return the names of the listed files and other non-directory entries
+     * @since 1.19.0
+     */
+    Set<String> getFileNames() {
+        return Collections.unmodifiableSet(fileNames)
+    }
+
+    /**
+     * @return the names of the listed subdirectories
+     * @since 1.19.0
+     */
+    Set<String> getDirectoryNames() {
+        return Collections.unmodifiableSet(directoryNames)
+    }
+
+    /**
+     * @return true if the directory contains more entries than were read
+     * @since 1.19.0
+     */
+    boolean isTruncated() {
+        return truncated
+    }
+
+    /**
+     * @param name the name of a file
+     * @return true if a file with the given name was listed
+     * @since 1.19.0
+     */
+    boolean hasFile(String name) {
+        return fileNames.contains(name)
+    }
+
+    /**
+     * @param name the name of a directory
+     * @return true if a subdirectory with the given name was listed
+     * @since 1.19.0
+     */
+    boolean hasDirectory(String name) {
+        return directoryNames.contains(name)
+    }
+
+    /**
+     * @param namePredicate decides for the name of a file whether it matches
+     * @return true if a listed file matches
+     * @since 1.19.0
+     */
+    boolean hasFileMatching(Predicate<String> namePredicate) {
+        for (String name : fileNames) {
+            if (namePredicate.test(name)) {
+                return true
+            }
+        }
+        return false
+    }
+
+    /**
+     * Lists a subdirectory with the same bound, the listing is only read once
+     * @param name the name of a listed subdirectory
+     * @return the listing of the subdirectory
+     * @throws IllegalArgumentException if no subdirectory with the given name was listed
+     * @throws IOException if the subdirectory cannot be listed
+     * @since 1.19.0
+     */
+    DirectoryListing subdirectory(String name) throws IOException {
+        if (!directoryNames.contains(name)) {
+            throw new IllegalArgumentException("${directory} has no listed subdirectory ${name}")
+        }
+        DirectoryListing listing = subdirectories.get(name)
+        if (listing == null) {
+            listing = of(directory.resolve(name), maxEntries)
+            subdirectories.put(name, listing)
+        }
+        return listing
+    }
+}
@@ -0,0 +1,22 @@
+package life.qbic.datasets.parsers
+
+/**
+ * Receives every file that is accepted during the directory walk of a parse, while the walk is
+ * still running.
+ *
+ * @since 1.19.0
+ */
+interface FileDiscoveryListener {
+
+    /**
+     * Called once per accepted file, on the thread that runs the parse. Blocking in this method
+     * pauses the walk.
+     *
+     * @param relativePath the path of the file relative to the dataset root, as it appears in the parsed structure
+     * @param fileType the file type determined by the parser
+     * @param size the size of the file in bytes
+     * @since 1.19.0
+     */
+    void onFileDiscovered(String relativePath, String fileType, long size)
+
+}
@@ -0,0 +1,20 @@
+package life.qbic.datasets.parsers
+
+/**
+ * Thrown to indicate that a parse was cancelled with its {@link CancellationToken} or by
+ * interrupting the parsing thread.
+ *
+ * @since 1.19.0
+ */
+class ParseCancelledException extends DataParserException {
+
+    /**
+     * Constructs a <code>ParseCancelledException</code> with the specified detail message.
+     * @param message the detail message
+     * @since 1.19.0
+     */
+    ParseCancelledException(String message) {
+        super(message)
+    }
+
+}
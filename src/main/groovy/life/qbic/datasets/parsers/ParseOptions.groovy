@@ -0,0 +1,170 @@
+package life.qbic.datasets.parsers
+
+import life.qbic.datasets.index.SampleIdIndex
+
+import java.time.Duration
+import java.time.Instant
+
+/**
+ * Controls a single parse: how much of the dataset is walked, until when the parse may run,
+ * whether it was cancelled, who is informed about its progress and the files it finds and where
+ * the sample codes of the dataset are indexed.
+ *
+ * <p>The deadline and the cancellation are checked cooperatively before every directory
+ * listing and every metadata file read, and for every buffer while large files like sequencing
+ * summaries or fastq files are scanned. A single blocking file system call is not interrupted.</p>
+ *
+ * @since 1.19.0
+ */
+class ParseOptions {
+
+    private ScanMode scanMode = ScanMode.FULL
+
+    private Instant deadline
+
+    private CancellationToken cancellationToken
+
+    private ParseProgressListener progressListener
+
+    private FileDiscoveryListener fileDiscoveryListener
+
+    private SampleIdIndex sampleIdIndex
+
+    /**
+     * @param scanMode determines which directories are walked, {@link ScanMode#FULL} by default
+     * @since 1.19.0
+     */
+    ParseOptions scanMode(ScanMode scanMode) {
+        this.scanMode = Objects.requireNonNull(scanMode, "Scan mode must not be null!")
+        return this
+    }
+
+    /**
+     * @param deadline the point in time after which the parse fails with a {@link ParseTimeoutException}
+     * @since 1.19.0
+     */
+    ParseOptions deadline(Instant deadline) {
+        this.deadline = deadline
+        return this
+    }
+
+    /**
+     * Sets the deadline relative to now
+     * @param timeout the time the parse may take from now on
+     * @since 1.19.0
+     */
+    ParseOptions timeout(Duration timeout) {
+        return deadline(Instant.now().plus(timeout))
+    }
+
+    /**
+     * @param cancellationToken a token that cancels the parse with a {@link ParseCancelledException}
+     * @since 1.19.0
+     */
+    ParseOptions cancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken
+        return this
+    }
+
+    /**
+     * @param progressListener receives the number of directories and files visited so far
+     * @since 1.19.0
+     */
+    ParseOptions progressListener(ParseProgressListener progressListener) {
+        this.progressListener = progressListener
+        return this
+    }
+
+    /**
+     * @param fileDiscoveryListener receives every accepted file as soon as its directory was listed
+     * @since 1.19.0
+     */
+    ParseOptions fileDiscoveryListener(FileDiscoveryListener fileDiscoveryListener) {
+        this.fileDiscoveryListener = fileDiscoveryListener
+        return this
+    }
+
+    /**
+     * @param sampleIdIndex receives the sample codes of the dataset once it was parsed successfully
+     * @since 1.19.0
+     */
+    ParseOptions sampleIdIndex(SampleIdIndex sampleIdIndex) {
+        this.sampleIdIndex = sampleIdIndex
+        return this
+    }
+
+    /**
+     * @return the scan mode of the parse
+     * @since 1.19.0
+     */
+    ScanMode getScanMode() {
+        return scanMode
+    }
+
+    /**
+     * @return the deadline of the parse or null if the parse may run without limit
+     * @since 1.19.0
+     */
+    Instant getDeadline() {
+        return deadline
+    }
+
+    /**
+     * @return the index of the sample codes of parsed datasets or null if they are not indexed
+     * @since 1.19.0
+     */
+    SampleIdIndex getSampleIdIndex() {
+        return sampleIdIndex
+    }
+
+    /**
+     * Fails if the parse should not continue
+     * @throws ParseCancelledException if the cancellation token was cancelled or the thread was interrupted
+     * @throws ParseTimeoutException if the deadline has passed
+     * @since 1.19.0
+     */
+    void checkpoint() throws ParseCancelledException, ParseTimeoutException {
+        if (cancellationToken != null && cancellationToken.isCancelled()) {
+            throw new ParseCancelledException("The parse was cancelled")
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ParseCancelledException("The parsing thread was interrupted")
+        }
+        if (deadline != null && Instant.now().isAfter(deadline)) {
+            throw new ParseTimeoutException("The parse did not finish before ${deadline}")
+        }
+    }
+
+    /**
+     * Informs the progress listener, if there is one
+     * @param visitedDirectories the number of directories listed so far
+     * @param visitedFiles the number of files found so far
+     * @since 1.19.0
+     */
+    void reportProgress(long visitedDirectories, long visitedFiles) {
+        if (progressListener != null) {
+            progressListener.onProgress(visitedDirectories, visitedFiles)
+        }
+    }
+
+    /**
+     * @return true if discovered files are reported to a listener
+     * @since 1.19.0
+     */
+    boolean hasFileDiscoveryListener() {
+        return fileDiscoveryListener != null
+    }
+
+    /**
+     * Informs the file discovery listener, if there is one
+     * @param relativePath the path of the file relative to the dataset root
+     * @param fileType the file type determined by the parser
+     * @param size the size of the file in bytes
+     * @since 1.19.0
+     */
+    void reportFile(String relativePath, String fileType, long size) {
+        if (fileDiscoveryListener != null) {
+            fileDiscoveryListener.onFileDiscovered(relativePath, fileType, size)
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package life.qbic.datasets.parsers
+
+/**
+ * Receives the progress of a directory walk during parsing.
+ *
+ * @since 1.19.0
+ */
+interface ParseProgressListener {
+
+    /**
+     * Called after the content of a directory was listed, on the thread that runs the parse.
+     *
+     * @param visitedDirectories the number of directories listed so far
+     * @param visitedFiles the number of files found so far
+     * @since 1.19.0
+     */
+    void onProgress(long visitedDirectories, long visitedFiles)
+
+}
@@ -0,0 +1,19 @@
+package life.qbic.datasets.parsers
+
+/**
+ * Thrown to indicate that a parse did not finish before the deadline of its {@link ParseOptions}.
+ *
+ * @since 1.19.0
+ */
+class ParseTimeoutException extends DataParserException {
+
+    /**
+     * Constructs a <code>ParseTimeoutException</code> with the specified detail message.
+     * @param message the detail message
+     * @since 1.19.0
+     */
+    ParseTimeoutException(String message) {
+        super(message)
+    }
+
+}
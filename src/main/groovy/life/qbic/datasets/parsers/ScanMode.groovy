@@ -0,0 +1,24 @@
+package life.qbic.datasets.parsers
+
+/**
+ * Determines how much of a dataset directory is walked during parsing.
+ *
+ * @since 1.19.0
+ */
+enum ScanMode {
+
+    /**
+     * Every directory of the dataset is walked and all files are part of the parsed dataset.
+     * @since 1.19.0
+     */
+    FULL,
+
+    /**
+     * Only directories whose content is needed by the structure definition of the dataset are walked.
+     * All other directories are part of the parsed dataset without their content, they have no
+     * children and provide the number of entries they contain as <code>summarized_entry_count</code>.
+     * @since 1.19.0
+     */
+    SCHEMA_GUIDED
+
+}
@@ -13,11 +13,36 @@ class ConsulConnector implements ServiceConnector, AutoCloseable {
 
     URL registryUrl
 
-    RxHttpClient httpClient
+    private final RxHttpClient httpClient
 
+    private final SharedHttpTransport.Lease lease
+
+    /**
+     * Creates a connector that uses the client of the {@link SharedHttpTransport#getDefault() default transport}
+     * @param serviceRegistry the URL of the service registry
+     */
     ConsulConnector(URL serviceRegistry) {
+        this(serviceRegistry, SharedHttpTransport.getDefault())
+    }
+
+    /**
+     * Creates a connector that uses the client of the given transport
+     * @param serviceRegistry the URL of the service registry
+     * @param transport the transport sharing its clients with other connectors
+     * @since 1.19.0
+     */
+    ConsulConnector(URL serviceRegistry, SharedHttpTransport transport) {
         this.registryUrl = serviceRegistry
-        this.httpClient = RxHttpClient.create(serviceRegistry)
+        this.lease = transport.acquire(serviceRegistry)
+        this.httpClient = lease.client
+    }
+
+    /**
+     * @return the client leased from the transport, it is shared with other connectors and must not be closed
+     * @since 1.19.0
+     */
+    RxHttpClient getHttpClient() {
+        return httpClient
     }
 
     @Override
@@ -44,7 +69,8 @@ class ConsulConnector implements ServiceConnector, AutoCloseable {
 
     @Override
     void close() throws Exception {
-        httpClient.close()
+        // the client is shared with other connectors, it is closed by the transport once unused
+        lease.close()
     }
 
     class ServiceNames {
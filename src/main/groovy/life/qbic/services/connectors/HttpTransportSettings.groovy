@@ -0,0 +1,113 @@
+package life.qbic.services.connectors
+
+import java.time.Duration
+
+/**
+ * Settings of a {@link SharedHttpTransport}.
+ *
+ * @since 1.19.0
+ */
+class HttpTransportSettings {
+
+    private int maxConnections = 10
+
+    private boolean keepAlive = true
+
+    private Duration idleTimeout = Duration.ofSeconds(60)
+
+    private boolean http2 = true
+
+    private Duration linger = Duration.ZERO
+
+    /**
+     * @param maxConnections the maximal number of pooled connections per host, 10 by default
+     * @since 1.19.0
+     */
+    HttpTransportSettings maxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("At least one connection is required, but was ${maxConnections}")
+        }
+        this.maxConnections = maxConnections
+        return this
+    }
+
+    /**
+     * @param keepAlive if true, connections are pooled and kept open between requests, true by default
+     * @since 1.19.0
+     */
+    HttpTransportSettings keepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive
+        return this
+    }
+
+    /**
+     * @param idleTimeout the time after which an unused pooled connection is closed, 60 seconds by default
+     * @since 1.19.0
+     */
+    HttpTransportSettings idleTimeout(Duration idleTimeout) {
+        this.idleTimeout = Objects.requireNonNull(idleTimeout, "Idle timeout must not be null!")
+        return this
+    }
+
+    /**
+     * @param http2 if true, HTTP/2 is negotiated for https hosts and HTTP/1.1 used if the host
+     * does not support it, true by default
+     * @since 1.19.0
+     */
+    HttpTransportSettings http2(boolean http2) {
+        this.http2 = http2
+        return this
+    }
+
+    /**
+     * @param linger the time a client is kept open after its last connector was closed, so that
+     * connectors created one after another share the connections. Zero by default, the client is
+     * closed together with its last connector. A lingering client keeps its event loop threads
+     * running, which delays the exit of the JVM unless {@link SharedHttpTransport#closeAll()} is called.
+     * @since 1.19.0
+     */
+    HttpTransportSettings linger(Duration linger) {
+        this.linger = Objects.requireNonNull(linger, "Linger time must not be null!")
+        return this
+    }
+
+    /**
+     * @return the maximal number of pooled connections per host
+     * @since 1.19.0
+     */
+    int getMaxConnections() {
+        return maxConnections
+    }
+
+    /**
+     * @return true if connections are pooled and kept open between requests
+     * @since 1.19.0
+     */
+    boolean isKeepAlive() {
+        return keepAlive
+    }
+
+    /**
+     * @return the time after which an unused pooled connection is closed
+     * @since 1.19.0
+     */
+    Duration getIdleTimeout() {
+        return idleTimeout
+    }
+
+    /**
+     * @return true if HTTP/2 is negotiated for https hosts
+     * @since 1.19.0
+     */
+    boolean isHttp2() {
+        return http2
+    }
+
+    /**
+     * @return the time a client is kept open after its last connector was closed
+     * @since 1.19.0
+     */
+    Duration getLinger() {
+        return linger
+    }
+}
@@ -0,0 +1,259 @@
+package life.qbic.services.connectors
+
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import io.micronaut.http.HttpVersion
+import io.micronaut.http.client.DefaultHttpClientConfiguration
+import io.micronaut.http.client.RxHttpClient
+
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.ScheduledFuture
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * <h1>Process-wide HTTP clients for service connectors</h1>
+ * <br>
+ * <p>Connectors lease the client of a host instead of creating their own, so the event loop and
+ * the pooled keep-alive connections are shared by all connectors talking to the same host.
+ * The clients are reference-counted: closing a connector releases its lease, a client is
+ * closed once its last lease was released.</p>
+ *
+ * <p>A transport with a linger time in its {@link HttpTransportSettings} keeps unused clients open
+ * for that time, so connectors created one after another reuse them. The event loop threads of
+ * a lingering client are not daemon threads, tools using such a transport call
+ * {@link #closeAll()} before they exit. The default transport does not linger unless it was
+ * replaced with {@link #configureDefault(HttpTransportSettings)}.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class SharedHttpTransport {
+
+    private static volatile SharedHttpTransport defaultTransport = new SharedHttpTransport(new HttpTransportSettings())
+
+    private final HttpTransportSettings settings
+
+    private final Map<String, SharedClient> clients = new HashMap<>()
+
+    private ScheduledExecutorService closer
+
+    private long acquisitions
+
+    private long reusedAcquisitions
+
+    /**
+     * @param settings the settings of the clients created by this transport
+     * @since 1.19.0
+     */
+    SharedHttpTransport(HttpTransportSettings settings) {
+        this.settings = settings
+    }
+
+    /**
+     * @return the transport used by connectors that are not given a transport explicitly
+     * @since 1.19.0
+     */
+    static SharedHttpTransport getDefault() {
+        return defaultTransport
+    }
+
+    /**
+     * Replaces the default transport, e.g. with one whose clients linger so that connectors
+     * created one after another reuse them.
+     * <p>Connectors created before keep their leases of the previous default transport. Its clients
+     * that are not leased anymore are closed.</p>
+     * @param settings the settings of the clients created by the new default transport
+     * @return the new default transport
+     * @since 1.19.0
+     */
+    static synchronized SharedHttpTransport configureDefault(HttpTransportSettings settings) {
+        SharedHttpTransport previous = defaultTransport
+        defaultTransport = new SharedHttpTransport(Objects.requireNonNull(settings, "Settings must not be null!"))
+        previous.closeUnused()
+        return defaultTransport
+    }
+
+    /**
+     * Leases the client for the host of a URL, the client is created if there is none
+     * @param url a URL of the host, only protocol, host and port are used
+     * @return the lease that has to be closed once the client is not needed anymore
+     * @since 1.19.0
+     */
+    synchronized Lease acquire(URL url) {
+        String origin = originOf(url)
+        acquisitions++
+        SharedClient client = clients.get(origin)
+        if (client == null) {
+            client = new SharedClient(origin, RxHttpClient.create(new URL(origin), createConfiguration(url)))
+            clients.put(origin, client)
+        } else {
+            reusedAcquisitions++
+        }
+        client.references++
+        if (client.pendingClose != null) {
+            client.pendingClose.cancel(false)
+            client.pendingClose = null
+        }
+        return new Lease(this, client)
+    }
+
+    @PackageScope
+    synchronized void release(SharedClient client) {
+        client.references--
+        if (client.references > 0 || clients.get(client.origin) != client) {
+            return
+        }
+        long lingerMillis = settings.linger.toMillis()
+        if (lingerMillis <= 0) {
+            closeClient(client)
+        } else {
+            client.pendingClose = closer().schedule({ closeIfUnused(client) } as Runnable, lingerMillis, TimeUnit.MILLISECONDS)
+        }
+    }
+
+    private synchronized void closeIfUnused(SharedClient client) {
+        if (client.references == 0 && clients.get(client.origin) == client) {
+            closeClient(client)
+        }
+    }
+
+    private void closeClient(SharedClient client) {
+        clients.remove(client.origin)
+        client.pendingClose = null
+        client.httpClient.close()
+    }
+
+    private synchronized void closeUnused() {
+        for (SharedClient client : new ArrayList<>(clients.values())) {
+            if (client.references == 0) {
+                if (client.pendingClose != null) {
+                    client.pendingClose.cancel(false)
+                }
+                closeClient(client)
+            }
+        }
+    }
+
+    /**
+     * Closes all clients immediately, including the ones that are still leased.
+     * Later leases create new clients.
+     * @since 1.19.0
+     */
+    synchronized void closeAll() {
+        for (SharedClient client : new ArrayList<>(clients.values())) {
+            if (client.pendingClose != null) {
+                client.pendingClose.cancel(false)
+            }
+            closeClient(client)
+        }
+    }
+
+    /**
+     * The share of leases that were served by an already open client. Every other lease created
+     * a new client with its own event loop.
+     * <p>This is not a connection reuse ratio: whether a request reused a pooled connection of an
+     * open client is not visible through the client API.</p>
+     * @return the ratio between 0 and 1, 0 if nothing was leased yet
+     * @since 1.19.0
+     */
+    synchronized double getLeaseReuseRatio() {
+        return acquisitions == 0 ? 0d : reusedAcquisitions / (double) acquisitions
+    }
+
+    /**
+     * @return the number of leases handed out so far
+     * @since 1.19.0
+     */
+    synchronized long getAcquisitionCount() {
+        return acquisitions
+    }
+
+    /**
+     * @return the number of clients that are currently open
+     * @since 1.19.0
+     */
+    synchronized int getOpenClientCount() {
+        return clients.size()
+    }
+
+    private DefaultHttpClientConfiguration createConfiguration(URL url) {
+        DefaultHttpClientConfiguration configuration = new DefaultHttpClientConfiguration()
+        configuration.getConnectionPoolConfiguration().setEnabled(settings.keepAlive)
+        configuration.getConnectionPoolConfiguration().setMaxConnections(settings.maxConnections)
+        configuration.setConnectionPoolIdleTimeout(settings.idleTimeout)
+        // HTTP/2 is negotiated with ALPN during the TLS handshake, plain connections stay on HTTP/1.1
+        if (settings.http2 && url.protocol == "https") {
+            configuration.setHttpVersion(HttpVersion.HTTP_2_0)
+        }
+        return configuration
+    }
+
+    private ScheduledExecutorService closer() {
+        if (closer == null) {
+            closer = Executors.newSingleThreadScheduledExecutor({ Runnable task ->
+                Thread thread = new Thread(task, "shared-http-transport-closer")
+                thread.setDaemon(true)
+                return thread
+            } as ThreadFactory)
+        }
+        return closer
+    }
+
+    private static String originOf(URL url) {
+        int port = url.port == -1 ? url.defaultPort : url.port
+        return "${url.protocol}://${url.host}:${port}".toString()
+    }
+
+    @PackageScope
+    static class SharedClient {
+        final String origin
+        final RxHttpClient httpClient
+        int references
+        ScheduledFuture<?> pendingClose
+
+        SharedClient(String origin, RxHttpClient httpClient) {
+            this.origin = origin
+            this.httpClient = httpClient
+        }
+    }
+
+    /**
+     * A lease of a shared client. Closing the lease does not close the client.
+     *
+     * @since 1.19.0
+     */
+    static class Lease implements AutoCloseable {
+
+        private final SharedHttpTransport transport
+        private final SharedClient client
+        private final AtomicBoolean released = new AtomicBoolean()
+
+        @PackageScope
+        Lease(SharedHttpTransport transport, SharedClient client) {
+            this.transport = transport
+            this.client = client
+        }
+
+        /**
+         * @return the shared client, it must not be closed by the caller
+         * @since 1.19.0
+         */
+        RxHttpClient getClient() {
+            return client.httpClient
+        }
+
+        /**
+         * Releases the lease, further calls have no effect
+         * @since 1.19.0
+         */
+        @Override
+        void close() {
+            if (released.compareAndSet(false, true)) {
+                transport.release(client)
+            }
+        }
+    }
+}
@@ -6,6 +6,10 @@ import life.qbic.datamodel.pipelines.PipelineOutput
 import life.qbic.datasets.parsers.DataParserException
 import life.qbic.datasets.parsers.DatasetParser
 import life.qbic.datasets.parsers.DatasetValidationException
+import life.qbic.datasets.parsers.ParseCancelledException
+import life.qbic.datasets.parsers.ParseOptions
+import life.qbic.datasets.parsers.ParseTimeoutException
+import life.qbic.datasets.parsers.ScanMode
 import org.everit.json.schema.Schema
 import org.everit.json.schema.ValidationException
 import org.everit.json.schema.loader.SchemaClient
@@ -13,9 +17,13 @@ import org.everit.json.schema.loader.SchemaLoader
 import org.json.JSONObject
 import org.json.JSONTokener
 
+import java.nio.file.DirectoryStream
+import java.nio.file.Files
 import java.nio.file.NotDirectoryException
 import java.nio.file.Path
 import java.text.ParseException
+import java.util.function.Function
+import java.util.function.Predicate
 
 /**
  * <h1>Parser storing the fileTree of a nf-core pipeline output directory into JSON format</h1>
@@ -117,30 +125,103 @@ class BioinformaticAnalysisParser implements DatasetParser<NfCorePipelineResult>
     /** {@InheritDoc} */
     @Override
     NfCorePipelineResult parseFrom(Path root) throws DataParserException, DatasetValidationException {
+        return parseFrom(root, new ParseOptions())
+    }
+
+    /**
+     * Parses and validates a nf-core pipeline output directory with the scan mode, deadline, cancellation and
+     * progress listener of the provided options. With {@link ScanMode#SCHEMA_GUIDED} the <code>multiqc</code>
+     * and <code>pipeline_info</code> directories are walked completely, process folders are only recorded
+     * by name and number of entries.
+     *
+     * @param root The root path of the dataset structure
+     * @param options the options of this parse
+     * @return A successfully parsed and validated dataset
+     * @throws DataParserException if the data type cannot be parsed (unknown data type)
+     * @throws DatasetValidationException if the data structure does not match a predefined schema
+     * @throws ParseTimeoutException if the deadline of the options passed before the parse finished
+     * @throws ParseCancelledException if the parse was cancelled
+     * @since 1.19.0
+     */
+    NfCorePipelineResult parseFrom(Path root, ParseOptions options) throws DataParserException, DatasetValidationException {
         try {
-            Map fileTreeMap = parseFileStructureToMap(root)
-            adaptMapToDatasetStructure(fileTreeMap)
-            String json = mapToJson(fileTreeMap)
-            validateJson(json)
+            Map fileTreeMap = parseValidatedStructure(root, options)
             NfCorePipelineResult nfCorePipelineResult = NfCorePipelineResult.createFrom(fileTreeMap)
             return nfCorePipelineResult
         } catch (ValidationException validationException) {
             throw new DatasetValidationException(validationException)
+        } catch (DataParserException parserException) {
+            // timeouts and cancellations keep their type
+            throw parserException
         } catch (Exception e) {
             throw new DataParserException(e.message, e.getCause())
         }
     }
 
+    /**
+     * Parses and validates a nf-core pipeline output directory like {@link #parseFrom(Path, ParseOptions)},
+     * but keeps the validated structure as snapshot. The snapshot can be written to a file and loaded
+     * later on without accessing the directory again.
+     *
+     * @param root The root path of the dataset structure
+     * @param options the options of this parse
+     * @return the snapshot of the successfully parsed and validated dataset
+     * @throws DataParserException if the data type cannot be parsed (unknown data type)
+     * @throws DatasetValidationException if the data structure does not match a predefined schema
+     * @throws ParseTimeoutException if the deadline of the options passed before the parse finished
+     * @throws ParseCancelledException if the parse was cancelled
+     * @since 1.19.0
+     * @see DatasetSnapshot
+     */
+    DatasetSnapshot parseToSnapshot(Path root, ParseOptions options) throws DataParserException, DatasetValidationException {
+        try {
+            Map fileTreeMap = parseValidatedStructure(root, options)
+            return new DatasetSnapshot(DatasetSnapshot.DatasetType.NF_CORE_PIPELINE_RESULT, fileTreeMap)
+        } catch (ValidationException validationException) {
+            throw new DatasetValidationException(validationException)
+        } catch (DataParserException parserException) {
+            throw parserException
+        } catch (Exception e) {
+            throw new DataParserException(e.message, e.getCause())
+        }
+    }
+
+    private static Map parseValidatedStructure(Path root, ParseOptions options) {
+        Map fileTreeMap = parseFileStructureToMap(root, options)
+        adaptMapToDatasetStructure(fileTreeMap)
+        String json = mapToJson(fileTreeMap)
+        validateJson(json)
+        SampleIdIndexing.indexSampleIdFile(root, fileTreeMap.get(RequiredRootFileKeys.SAMPLE_ID.getKeyName()) as Map, options)
+        return fileTreeMap
+    }
+
     /**
      * Generates a map representing the provided folder structure
      * @param directory path of directory whose fileTree should be converted into map
      * @since 1.8.0
      */
-    private static Map parseFileStructureToMap(Path directory) {
-        Map fileTreeMap = DirectoryConverter.fileTreeToMap(directory)
+    private static Map parseFileStructureToMap(Path directory, ParseOptions options) {
+        ScanMode scanMode = options.scanMode
+        Predicate<String> expansionPolicy = { String relativePath ->
+            scanMode == ScanMode.FULL || isRequiredDirectory(relativePath)
+        } as Predicate<String>
+        Map fileTreeMap = DirectoryConverter.fileTreeToMap(directory, expansionPolicy, options)
         return fileTreeMap
     }
 
+    /**
+     * The content of the quality control and the pipeline information folders is part of the
+     * dataset structure, process folders are only identified by their name.
+     * @param relativePath the path of a directory relative to the root directory
+     * @return true if the content of the directory is needed to build the dataset structure
+     * @since 1.19.0
+     */
+    private static boolean isRequiredDirectory(String relativePath) {
+        String topLevelFolder = relativePath.tokenize('/').find() ?: ""
+        return topLevelFolder == RequiredRootFolderKeys.QUALITY_CONTROL.getFolderName() ||
+                topLevelFolder == RequiredRootFolderKeys.PIPELINE_INFORMATION.getFolderName()
+    }
+
     /**
      * Method which adapts the parsed map of the root directory in place to the expected file structure.
      * @see {<a href="https://github.com/qbicsoftware/data-model-lib/blob/master/src/test/resources/examples/resultset/valid-resultset-example.json">valid datastructure example</a>
@@ -273,27 +354,33 @@ class BioinformaticAnalysisParser implements DatasetParser<NfCorePipelineResult>
         /**
          *
          * @param path a path to the directory which will be used as root for parsing
-         * @return a Map describing the file tree starting from the given path
+         * @param expansionPolicy decides which directories are walked
+         * @param options the deadline, cancellation and progress listener of the walk
+         * @return a Map view of the compact file tree starting from the given path
          * @since 1.8.0
          * @throws FileNotFoundException in case the given directory does not exist
          * @throws IOException the input path could not be processed
          * @throws ParseException in case the directory is empty
          */
-        static Map fileTreeToMap(Path path) throws FileNotFoundException, IOException, ParseException {
-            File rootLocation = new File(path.toString())
-            if (rootLocation.isFile()) {
+        static Map fileTreeToMap(Path path, Predicate<String> expansionPolicy, ParseOptions options) throws FileNotFoundException, IOException, ParseException {
+            if (Files.isRegularFile(path)) {
                 throw new NotDirectoryException("Expected a directory. Got a file instead.")
-            } else if (rootLocation.isDirectory()) {
+            } else if (Files.isDirectory(path)) {
                 //Check if existing Directory is empty
-                if (rootLocation.list().length > 0) {
+                if (hasEntries(path)) {
                     // Recursive conversion
-                    Map folderStructure = convertDirectory(rootLocation.toPath())
-                    return convertToRelativePaths(folderStructure, rootLocation.toPath())
+                    CompactFileTree fileTree = new CompactFileTree.Builder(path)
+                            .fileTypeKey("fileType")
+                            .fileTypeResolver({ String fileName -> determineFileType(fileName) } as Function<String, String>)
+                            .expansionPolicy(expansionPolicy)
+                            .parseOptions(options)
+                            .build()
+                    return fileTree.asMap()
                 } else {
                     throw new ParseException("Specified directory ${path.toString()} is empty", -1)
                 }
             } else {
-                if (!rootLocation.exists()) {
+                if (!Files.exists(path)) {
                     throw new FileNotFoundException("The given path '${path.toString()}' does not exist.")
                 } else {
                     throw new IOException("The given path '${path.toString()}' could not be read")
@@ -302,70 +389,16 @@ class BioinformaticAnalysisParser implements DatasetParser<NfCorePipelineResult>
 
         }
 
-        /**
-         * Convert a directory structure to a map, following the BioinformaticAnalysis schema.
-         * @param a path to the current location in recursion
-         * @return a map representing a directory with name, path and children as keys
-         * @since 1.8.0
+        /*
+         * Only checks for a first entry instead of listing the whole directory
          */
-        private static Map convertDirectory(Path path) {
-            File currentDirectory = new File(path.toString())
-            String name = currentDirectory.getName()
-            List children = currentDirectory.listFiles().collect {
-                file ->
-                    if (file.isFile()) {
-                        convertFile(file.toPath())
-                    } else if (file.isDirectory()) {
-                        convertDirectory(file.toPath())
-                    }
-            }
-
-            def convertedDirectory = [
-                    "name"    : name,
-                    "path"    : path,
-                    "children": children
-            ]
-
-            return convertedDirectory
-        }
-
-        private static Map convertToRelativePaths(Map content, Path root) {
-            //Since each value in the root map is a map we need to iterate over each key/value pair
-            content["path"] = toRelativePath(content["path"] as String, root)
-            if (content["children"]) {
-                // Children always contains a map, so convert recursively
-                content["children"] = (content["children"] as List).collect { convertToRelativePaths(it as Map, root) }
+        private static boolean hasEntries(Path directory) {
+            DirectoryStream<Path> entries = Files.newDirectoryStream(directory)
+            try {
+                return entries.iterator().hasNext()
+            } finally {
+                entries.close()
             }
-            return content
-
-        }
-
-        private static String toRelativePath(String path, Path root) {
-            if (root.toString().equals(path)) {
-                return "./"
-            } else {
-                return path.replace("${root.toString()}/", "./")
-            }
-        }
-
-        /**
-         * File to JSON converter
-         * @param a path to the current file in recursion
-         * @return a map representing the file with name, path and file_type as keys
-         * @since 1.8.0
-         */
-        private static Map convertFile(Path path) {
-            File currentFile = new File(path.toString())
-            String name = currentFile.getName()
-            String fileType = determineFileType(name)
-
-
-            def convertedFile = [
-                    "name"    : name,
-                    "path"    : path,
-                    "fileType": fileType
-            ]
-            return convertedFile
         }
 
         /**
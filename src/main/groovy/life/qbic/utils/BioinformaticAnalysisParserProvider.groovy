@@ -0,0 +1,31 @@
+package life.qbic.utils
+
+import life.qbic.datasets.parsers.DatasetParser
+import life.qbic.datasets.parsers.DatasetParserProvider
+import life.qbic.datasets.parsers.DirectoryListing
+
+/**
+ * Detects nf-core pipeline output by its <code>pipeline_info</code> and <code>multiqc</code> folders.
+ *
+ * @since 1.19.0
+ */
+class BioinformaticAnalysisParserProvider implements DatasetParserProvider {
+
+    /** {@InheritDoc} */
+    @Override
+    String getDatasetType() {
+        return "nf-core pipeline result"
+    }
+
+    /** {@InheritDoc} */
+    @Override
+    boolean matches(DirectoryListing rootListing) throws IOException {
+        return rootListing.hasDirectory("pipeline_info") && rootListing.hasDirectory("multiqc")
+    }
+
+    /** {@InheritDoc} */
+    @Override
+    DatasetParser<?> createParser() {
+        return new BioinformaticAnalysisParser()
+    }
+}
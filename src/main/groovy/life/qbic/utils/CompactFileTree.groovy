@@ -0,0 +1,794 @@
+package life.qbic.utils
+
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import life.qbic.datasets.parsers.DirectoryListing
+import life.qbic.datasets.parsers.ParseOptions
+
+import java.nio.file.DirectoryStream
+import java.nio.file.Files
+import java.nio.file.LinkOption
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.nio.file.attribute.BasicFileAttributes
+import java.util.function.BiPredicate
+import java.util.function.Function
+import java.util.function.Predicate
+
+/**
+ * <h1>Memory efficient representation of a parsed file tree</h1>
+ * <br>
+ * <p>Stores the nodes of a directory tree in primitive arrays. Every node only references the index of
+ * its parent, its name in a shared name table and its file type in a shared file type table. Paths are
+ * not stored but computed from the parent indices relative to a single root path.</p>
+ *
+ * <p>The parsers and the data model factories work with nested maps. {@link #asMap()} provides a
+ * lightweight map view of the tree that creates the entries <code>name</code>, <code>path</code>
+ * and <code>children</code> or the file type entry only when they are accessed. Summary nodes of directories
+ * that were not walked have no children and provide the number of entries of the directory as
+ * <code>summarized_entry_count</code>. Additional properties
+ * that are put into a view are kept per node, so the tree can be adapted in place to the expected
+ * dataset structure.</p>
+ *
+ * <p>The tree is walked with the file system of its root path, so directories inside archives that are
+ * opened as a {@link java.nio.file.FileSystem}, e.g. zip files, can be parsed like regular directories.
+ * Relative paths always use <code>/</code> as separator.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class CompactFileTree {
+
+    /**
+     * Index of the root directory
+     */
+    static final int ROOT = 0
+
+    @PackageScope
+    static final int DIRECTORY = -1
+
+    private static final String NAME_KEY = "name"
+    private static final String PATH_KEY = "path"
+    private static final String CHILDREN_KEY = "children"
+    private static final String SUMMARIZED_ENTRY_COUNT_KEY = "summarized_entry_count"
+
+    private static final List<String> DIRECTORY_KEYS = Collections.unmodifiableList([NAME_KEY, PATH_KEY, CHILDREN_KEY])
+    private static final List<String> SUMMARY_KEYS = Collections.unmodifiableList([NAME_KEY, PATH_KEY, CHILDREN_KEY,
+                                                                                   SUMMARIZED_ENTRY_COUNT_KEY])
+
+    private final Path root
+    private final String fileTypeKey
+    private final String relativePathPrefix
+    private final List<String> fileKeys
+
+    private String[] names = new String[0]
+    private String[] fileTypes = new String[0]
+
+    private int nodeCount
+    private int[] parents = new int[64]
+    private int[] nameIds = new int[64]
+    private int[] fileTypeIds = new int[64]
+    private int[] firstChildren = new int[64]
+    private int[] childCounts = new int[64]
+
+    @PackageScope
+    final Map<Integer, Map<String, Object>> additionalProperties = new HashMap<>()
+
+    private final Map<Integer, Integer> summarizedEntryCounts = new HashMap<>()
+
+    @PackageScope
+    CompactFileTree(Path root, String fileTypeKey, String relativePathPrefix) {
+        this.root = root
+        this.fileTypeKey = fileTypeKey
+        this.relativePathPrefix = relativePathPrefix
+        this.fileKeys = Collections.unmodifiableList([NAME_KEY, PATH_KEY, fileTypeKey])
+    }
+
+    /**
+     * @return the absolute path of the root directory, all node paths are relative to it
+     * @since 1.19.0
+     */
+    Path getRoot() {
+        return root
+    }
+
+    /**
+     * @return the number of files and directories in the tree including the root directory
+     * @since 1.19.0
+     */
+    int size() {
+        return nodeCount
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the file or directory name of the node
+     * @since 1.19.0
+     */
+    String getName(int node) {
+        return names[nameIds[node]]
+    }
+
+    /**
+     * @param node the index of a node
+     * @return true if the node is a directory, false if it is a file
+     * @since 1.19.0
+     */
+    boolean isDirectory(int node) {
+        return fileTypeIds[node] == DIRECTORY
+    }
+
+    /**
+     * @param node the index of a file node
+     * @return the file type of the node, null for directories
+     * @since 1.19.0
+     */
+    String getFileType(int node) {
+        int fileTypeId = fileTypeIds[node]
+        return fileTypeId == DIRECTORY ? null : fileTypes[fileTypeId]
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the index of the parent directory, -1 for the root directory
+     * @since 1.19.0
+     */
+    int getParent(int node) {
+        return parents[node]
+    }
+
+    /**
+     * @param node the index of a directory node
+     * @return the number of files and directories directly contained in the directory
+     * @since 1.19.0
+     */
+    int getChildCount(int node) {
+        return childCounts[node]
+    }
+
+    /**
+     * A directory that was not expanded during the walk is kept as summary node. It has no children
+     * in the tree, only the number of entries it contains is known.
+     * @param node the index of a node
+     * @return true if the node is a directory whose content was not expanded
+     * @since 1.19.0
+     */
+    boolean isSummary(int node) {
+        return summarizedEntryCounts.containsKey(node)
+    }
+
+    /**
+     * @param node the index of a summary node
+     * @return the number of files and directories directly contained in the summarized directory,
+     * 0 for all other nodes
+     * @since 1.19.0
+     */
+    int getSummarizedEntryCount(int node) {
+        Integer count = summarizedEntryCounts.get(node)
+        return count == null ? 0 : count
+    }
+
+    /**
+     * @param node the index of a directory node
+     * @param position the position of the child within the directory
+     * @return the index of the child node
+     * @since 1.19.0
+     */
+    int getChild(int node, int position) {
+        if (position < 0 || position >= childCounts[node]) {
+            throw new IndexOutOfBoundsException("Directory ${getName(node)} has no child at position ${position}")
+        }
+        return firstChildren[node] + position
+    }
+
+    /**
+     * The path of a node relative to the root, e.g. <code>./txt/evidence.txt</code>. The root itself
+     * is represented by <code>./</code>.
+     * @param node the index of a node
+     * @return the relative path of the node
+     * @since 1.19.0
+     */
+    String getRelativePath(int node) {
+        if (node == ROOT) {
+            return "./"
+        }
+        int depth = 0
+        int current = node
+        while (current != ROOT) {
+            depth++
+            current = parents[current]
+        }
+        String[] segments = new String[depth]
+        current = node
+        for (int i = depth - 1; i >= 0; i--) {
+            segments[i] = getName(current)
+            current = parents[current]
+        }
+        StringBuilder path = new StringBuilder(relativePathPrefix)
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                path.append('/')
+            }
+            path.append(segments[i])
+        }
+        return path.toString()
+    }
+
+    /**
+     * @param node the index of a node
+     * @return the path of the node resolved against the root path
+     * @since 1.19.0
+     */
+    Path getPath(int node) {
+        Path path = root
+        if (node == ROOT) {
+            return path
+        }
+        List<String> segments = []
+        int current = node
+        while (current != ROOT) {
+            segments.add(0, getName(current))
+            current = parents[current]
+        }
+        for (String segment : segments) {
+            path = path.resolve(segment)
+        }
+        return path
+    }
+
+    /**
+     * @return a map view of the root directory
+     * @since 1.19.0
+     */
+    Map<String, Object> asMap() {
+        return new NodeView(this, ROOT)
+    }
+
+    /**
+     * @param node the index of a node
+     * @return a map view of the node
+     * @since 1.19.0
+     */
+    Map<String, Object> nodeAsMap(int node) {
+        return new NodeView(this, node)
+    }
+
+    @PackageScope
+    int addNode(int parent, int nameId, int fileTypeId) {
+        ensureCapacity(nodeCount + 1)
+        int node = nodeCount++
+        parents[node] = parent
+        nameIds[node] = nameId
+        fileTypeIds[node] = fileTypeId
+        firstChildren[node] = 0
+        childCounts[node] = 0
+        return node
+    }
+
+    @PackageScope
+    void setChildren(int node, int firstChild, int childCount) {
+        firstChildren[node] = firstChild
+        childCounts[node] = childCount
+    }
+
+    @PackageScope
+    void setSummarizedEntryCount(int node, int entryCount) {
+        summarizedEntryCounts.put(node, entryCount)
+    }
+
+    @PackageScope
+    void setTables(String[] names, String[] fileTypes) {
+        this.names = names
+        this.fileTypes = fileTypes
+    }
+
+    @PackageScope
+    void trimToSize() {
+        parents = Arrays.copyOf(parents, nodeCount)
+        nameIds = Arrays.copyOf(nameIds, nodeCount)
+        fileTypeIds = Arrays.copyOf(fileTypeIds, nodeCount)
+        firstChildren = Arrays.copyOf(firstChildren, nodeCount)
+        childCounts = Arrays.copyOf(childCounts, nodeCount)
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= parents.length) {
+            return
+        }
+        int newCapacity = Math.max(capacity, parents.length * 2)
+        parents = Arrays.copyOf(parents, newCapacity)
+        nameIds = Arrays.copyOf(nameIds, newCapacity)
+        fileTypeIds = Arrays.copyOf(fileTypeIds, newCapacity)
+        firstChildren = Arrays.copyOf(firstChildren, newCapacity)
+        childCounts = Arrays.copyOf(childCounts, newCapacity)
+    }
+
+    @PackageScope
+    Object getStructuralValue(int node, String key) {
+        switch (key) {
+            case NAME_KEY:
+                return getName(node)
+            case PATH_KEY:
+                return getRelativePath(node)
+            case CHILDREN_KEY:
+                return isDirectory(node) ? new ChildrenView(this, node) : null
+            case SUMMARIZED_ENTRY_COUNT_KEY:
+                return isSummary(node) ? getSummarizedEntryCount(node) : null
+            default:
+                return key == fileTypeKey && !isDirectory(node) ? getFileType(node) : null
+        }
+    }
+
+    @PackageScope
+    List<String> structuralKeys(int node) {
+        if (!isDirectory(node)) {
+            return fileKeys
+        }
+        return isSummary(node) ? SUMMARY_KEYS : DIRECTORY_KEYS
+    }
+
+    /**
+     * Walks a directory and builds a {@link CompactFileTree}
+     *
+     * @since 1.19.0
+     */
+    @CompileStatic
+    static class Builder {
+        private final Path root
+        private String fileTypeKey = "fileType"
+        private String relativePathPrefix = "./"
+        private Function<String, String> fileTypeResolver = { String name -> name.tokenize('.').last() } as Function<String, String>
+        private BiPredicate<Path, Boolean> entryFilter = { Path entry, Boolean directory -> true } as BiPredicate<Path, Boolean>
+        private Predicate<String> expansionPolicy = { String relativePath -> true } as Predicate<String>
+        private ParseOptions parseOptions = new ParseOptions()
+
+        private long visitedDirectories
+        private long visitedFiles
+
+        private final Map<String, Integer> nameTable = new HashMap<>()
+        private final Map<String, Integer> fileTypeTable = new LinkedHashMap<>()
+
+        /**
+         * @param root the absolute path of the directory to walk, on any file system
+         * @since 1.19.0
+         */
+        Builder(Path root) {
+            this.root = root
+        }
+
+        /**
+         * @param fileTypeKey the key under which the map view provides the file type of files,
+         * <code>fileType</code> by default
+         * @since 1.19.0
+         */
+        Builder fileTypeKey(String fileTypeKey) {
+            this.fileTypeKey = fileTypeKey
+            return this
+        }
+
+        /**
+         * @param relativePathPrefix the prefix of relative paths below the root, <code>./</code> by default
+         * @since 1.19.0
+         */
+        Builder relativePathPrefix(String relativePathPrefix) {
+            this.relativePathPrefix = relativePathPrefix
+            return this
+        }
+
+        /**
+         * @param fileTypeResolver determines the file type from a file name, defaults to the
+         * substring after the last <code>.</code>
+         * @since 1.19.0
+         */
+        Builder fileTypeResolver(Function<String, String> fileTypeResolver) {
+            this.fileTypeResolver = fileTypeResolver
+            return this
+        }
+
+        /**
+         * @param entryFilter decides for every file and directory whether it is part of the tree,
+         * it is called with the path of the entry and whether the entry is a directory. It is called
+         * for every listed entry, also for entries like dangling links that are never part of the tree.
+         * @since 1.19.0
+         */
+        Builder entryFilter(BiPredicate<Path, Boolean> entryFilter) {
+            this.entryFilter = entryFilter
+            return this
+        }
+
+        /**
+         * Only directories accepted by the expansion policy are walked. All other directories are
+         * added as summary nodes that only know the number of entries they contain.
+         * The root directory is always expanded.
+         * @param expansionPolicy decides for the path of a directory relative to the root and
+         * without leading <code>./</code>, e.g. <code>combined/txt</code>, whether its content is needed
+         * @since 1.19.0
+         */
+        Builder expansionPolicy(Predicate<String> expansionPolicy) {
+            this.expansionPolicy = expansionPolicy
+            return this
+        }
+
+        /**
+         * The deadline and cancellation of the options are checked before every directory is listed,
+         * their progress listener is informed after every listed directory and their file discovery
+         * listener about every accepted file of the directory. The scan mode of the
+         * options is not used, see {@link #expansionPolicy(Predicate)}.
+         * @param parseOptions the options of the parse that builds the tree
+         * @since 1.19.0
+         */
+        Builder parseOptions(ParseOptions parseOptions) {
+            this.parseOptions = parseOptions
+            return this
+        }
+
+        /**
+         * Walks the root directory recursively
+         * @return the tree containing all accepted files and directories
+         * @throws IOException if a directory cannot be listed
+         * @throws life.qbic.datasets.parsers.ParseTimeoutException if the deadline of the parse options passed
+         * @throws life.qbic.datasets.parsers.ParseCancelledException if the parse was cancelled
+         * @since 1.19.0
+         */
+        CompactFileTree build() throws IOException {
+            CompactFileTree tree = new CompactFileTree(root, fileTypeKey, relativePathPrefix)
+            int rootNode = tree.addNode(-1, intern(nameTable, DirectoryListing.fileName(root)), DIRECTORY)
+            expand(tree, rootNode, root, "")
+            tree.setTables(toArray(nameTable), toArray(fileTypeTable))
+            tree.trimToSize()
+            return tree
+        }
+
+        private void expand(CompactFileTree tree, int node, Path directory, String relativePath) {
+            parseOptions.checkpoint()
+            List<Path> acceptedEntries = []
+            List<Boolean> directoryFlags = []
+            List<Long> fileSizes = []
+            int listedEntries = 0
+            int fileCount = 0
+            DirectoryStream<Path> entries = Files.newDirectoryStream(directory)
+            try {
+                for (Path entry : entries) {
+                    // huge directories on slow storage take long to list, check in between
+                    if ((++listedEntries & 0x3FF) == 0) {
+                        parseOptions.checkpoint()
+                    }
+                    BasicFileAttributes attributes = readAttributes(entry)
+                    if (attributes == null) {
+                        // the entry was deleted while the directory was listed
+                        continue
+                    }
+                    boolean isDirectory = attributes.isDirectory()
+                    // every entry is offered to the filter, which may collect entries it does not accept
+                    if (entryFilter.test(entry, isDirectory) && (isDirectory || attributes.isRegularFile())) {
+                        acceptedEntries.add(entry)
+                        directoryFlags.add(isDirectory)
+                        fileSizes.add(isDirectory ? 0L : attributes.size())
+                        if (!isDirectory) {
+                            fileCount++
+                        }
+                    }
+                }
+            } finally {
+                entries.close()
+            }
+            int firstChild = tree.size()
+            boolean reportFiles = parseOptions.hasFileDiscoveryListener()
+            for (int i = 0; i < acceptedEntries.size(); i++) {
+                String name = DirectoryListing.fileName(acceptedEntries.get(i))
+                boolean isDirectory = directoryFlags.get(i)
+                String fileType = isDirectory ? null : fileTypeResolver.apply(name)
+                int fileTypeId = isDirectory ? DIRECTORY : intern(fileTypeTable, fileType)
+                tree.addNode(node, intern(nameTable, name), fileTypeId)
+                if (reportFiles && !isDirectory) {
+                    String filePath = relativePath.isEmpty() ? name : relativePath + "/" + name
+                    parseOptions.reportFile(relativePathPrefix + filePath, fileType, fileSizes.get(i))
+                }
+            }
+            tree.setChildren(node, firstChild, acceptedEntries.size())
+            visitedDirectories++
+            visitedFiles += fileCount
+            parseOptions.reportProgress(visitedDirectories, visitedFiles)
+            for (int i = 0; i < acceptedEntries.size(); i++) {
+                if (!directoryFlags.get(i)) {
+                    continue
+                }
+                Path childDirectory = acceptedEntries.get(i)
+                String name = DirectoryListing.fileName(childDirectory)
+                String childPath = relativePath.isEmpty() ? name : relativePath + "/" + name
+                if (expansionPolicy.test(childPath)) {
+                    expand(tree, firstChild + i, childDirectory, childPath)
+                } else {
+                    parseOptions.checkpoint()
+                    tree.setSummarizedEntryCount(firstChild + i, countEntries(childDirectory))
+                }
+            }
+        }
+
+        /*
+         * One attribute read per entry instead of separate isDirectory and isFile checks. The target of
+         * a symbolic link is read, the attributes of the link itself are used if the link is dangling.
+         * Returns null if the entry does not exist anymore.
+         */
+        private static BasicFileAttributes readAttributes(Path entry) throws IOException {
+            try {
+                return Files.readAttributes(entry, BasicFileAttributes)
+            } catch (NoSuchFileException ignored) {
+                try {
+                    return Files.readAttributes(entry, BasicFileAttributes, LinkOption.NOFOLLOW_LINKS)
+                } catch (NoSuchFileException deleted) {
+                    return null
+                }
+            }
+        }
+
+        /*
+         * Counts the entries of a directory without creating a listing of the directory
+         * and without reading any attributes of the entries.
+         */
+        private static int countEntries(Path directory) {
+            int count = 0
+            DirectoryStream<Path> entries = Files.newDirectoryStream(directory)
+            try {
+                Iterator<Path> iterator = entries.iterator()
+                while (iterator.hasNext()) {
+                    iterator.next()
+                    count++
+                }
+            } finally {
+                entries.close()
+            }
+            return count
+        }
+
+        private static int intern(Map<String, Integer> table, String value) {
+            Integer id = table.get(value)
+            if (id == null) {
+                id = table.size()
+                table.put(value, id)
+            }
+            return id
+        }
+
+        private static String[] toArray(Map<String, Integer> table) {
+            String[] values = new String[table.size()]
+            table.each { String value, Integer id -> values[id] = value }
+            return values
+        }
+    }
+
+    /**
+     * Map view of a single node. Entries describing the node are created on access,
+     * all other entries are stored as additional properties of the node in the tree.
+     *
+     * @since 1.19.0
+     */
+    @CompileStatic
+    static class NodeView extends AbstractMap<String, Object> {
+        private final CompactFileTree tree
+        private final int node
+
+        NodeView(CompactFileTree tree, int node) {
+            this.tree = tree
+            this.node = node
+        }
+
+        /**
+         * @return the index of the node within the tree
+         * @since 1.19.0
+         */
+        int getNode() {
+            return node
+        }
+
+        @Override
+        Object get(Object key) {
+            Map<String, Object> nodeProperties = tree.additionalProperties.get(node)
+            if (nodeProperties != null && nodeProperties.containsKey(key)) {
+                return nodeProperties.get(key)
+            }
+            return key instanceof String ? tree.getStructuralValue(node, (String) key) : null
+        }
+
+        @Override
+        boolean containsKey(Object key) {
+            Map<String, Object> nodeProperties = tree.additionalProperties.get(node)
+            return (nodeProperties != null && nodeProperties.containsKey(key)) || tree.structuralKeys(node).contains(key)
+        }
+
+        @Override
+        Object put(String key, Object value) {
+            Map<String, Object> nodeProperties = tree.additionalProperties.get(node)
+            if (nodeProperties == null) {
+                nodeProperties = new LinkedHashMap<>()
+                tree.additionalProperties.put(node, nodeProperties)
+            }
+            Object previous = get(key)
+            nodeProperties.put(key, value)
+            return previous
+        }
+
+        @Override
+        int size() {
+            List<String> structuralKeys = tree.structuralKeys(node)
+            Map<String, Object> nodeProperties = tree.additionalProperties.get(node)
+            if (nodeProperties == null) {
+                return structuralKeys.size()
+            }
+            int size = structuralKeys.size()
+            for (String key : nodeProperties.keySet()) {
+                if (!structuralKeys.contains(key)) {
+                    size++
+                }
+            }
+            return size
+        }
+
+        /**
+         * @return a key that is equal for all views of the same node
+         */
+        @PackageScope
+        NodeKey referenceKey() {
+            return new NodeKey(tree, node, false)
+        }
+
+        /**
+         * The entries are created while iterating, the view itself does not copy the node
+         */
+        @Override
+        Set<Map.Entry<String, Object>> entrySet() {
+            return new EntrySetView(tree, node, this)
+        }
+    }
+
+    /**
+     * Set view of the entries of a node, backed by the tree
+     */
+    @CompileStatic
+    private static class EntrySetView extends AbstractSet<Map.Entry<String, Object>> {
+        private final CompactFileTree tree
+        private final int node
+        private final Map<String, Object> nodeView
+
+        EntrySetView(CompactFileTree tree, int node, Map<String, Object> nodeView) {
+            this.tree = tree
+            this.node = node
+            this.nodeView = nodeView
+        }
+
+        @Override
+        Iterator<Map.Entry<String, Object>> iterator() {
+            return new EntryIterator(tree, node)
+        }
+
+        @Override
+        int size() {
+            return nodeView.size()
+        }
+    }
+
+    /**
+     * Iterates over the structural entries of a node, whose values might be replaced by additional
+     * properties, followed by all other additional properties in the order they were put
+     */
+    @CompileStatic
+    private static class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+        private final CompactFileTree tree
+        private final int node
+        private final List<String> structuralKeys
+        private final Map<String, Object> nodeProperties
+        private final Iterator<Map.Entry<String, Object>> properties
+        private int position
+        private Map.Entry<String, Object> upcoming
+
+        EntryIterator(CompactFileTree tree, int node) {
+            this.tree = tree
+            this.node = node
+            this.structuralKeys = tree.structuralKeys(node)
+            this.nodeProperties = tree.additionalProperties.get(node)
+            Map<String, Object> additional = nodeProperties != null ? nodeProperties : (Map<String, Object>) Collections.EMPTY_MAP
+            this.properties = additional.entrySet().iterator()
+            advance()
+        }
+
+        private void advance() {
+            if (position < structuralKeys.size()) {
+                String key = structuralKeys.get(position++)
+                Object value = nodeProperties != null && nodeProperties.containsKey(key)
+                        ? nodeProperties.get(key)
+                        : tree.getStructuralValue(node, key)
+                upcoming = new AbstractMap.SimpleImmutableEntry<String, Object>(key, value)
+                return
+            }
+            while (properties.hasNext()) {
+                Map.Entry<String, Object> property = properties.next()
+                if (!structuralKeys.contains(property.getKey())) {
+                    upcoming = new AbstractMap.SimpleImmutableEntry<String, Object>(property.getKey(), property.getValue())
+                    return
+                }
+            }
+            upcoming = null
+        }
+
+        @Override
+        boolean hasNext() {
+            return upcoming != null
+        }
+
+        @Override
+        Map.Entry<String, Object> next() {
+            if (upcoming == null) {
+                throw new NoSuchElementException()
+            }
+            Map.Entry<String, Object> entry = upcoming
+            advance()
+            return entry
+        }
+    }
+
+    /**
+     * List view of the children of a directory node
+     *
+     * @since 1.19.0
+     */
+    @CompileStatic
+    static class ChildrenView extends AbstractList<Map<String, Object>> {
+        private final CompactFileTree tree
+        private final int node
+
+        ChildrenView(CompactFileTree tree, int node) {
+            this.tree = tree
+            this.node = node
+        }
+
+        @Override
+        Map<String, Object> get(int index) {
+            return new NodeView(tree, tree.getChild(node, index))
+        }
+
+        @Override
+        int size() {
+            return tree.getChildCount(node)
+        }
+
+        /**
+         * @return a key that is equal for all children views of the same directory
+         */
+        @PackageScope
+        NodeKey referenceKey() {
+            return new NodeKey(tree, node, true)
+        }
+    }
+
+    /**
+     * Identifies a node or the children of a node within a tree. Views are created on every access,
+     * so views of the same node are told apart from other nodes by their key instead of their identity.
+     */
+    @PackageScope
+    @CompileStatic
+    static class NodeKey {
+        private final CompactFileTree tree
+        private final int node
+        private final boolean children
+
+        NodeKey(CompactFileTree tree, int node, boolean children) {
+            this.tree = tree
+            this.node = node
+            this.children = children
+        }
+
+        @Override
+        boolean equals(Object other) {
+            if (!(other instanceof NodeKey)) {
+                return false
+            }
+            NodeKey key = (NodeKey) other
+            return key.tree.is(tree) && key.node == node && key.children == children
+        }
+
+        @Override
+        int hashCode() {
+            return (System.identityHashCode(tree) * 31 + node) * 2 + (children ? 1 : 0)
+        }
+    }
+}
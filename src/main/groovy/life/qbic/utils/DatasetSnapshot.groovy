@@ -0,0 +1,528 @@
+package life.qbic.utils
+
+import groovy.transform.CompileStatic
+import life.qbic.datamodel.datasets.MaxQuantRunResult
+import life.qbic.datamodel.datasets.NfCorePipelineResult
+import life.qbic.datamodel.datasets.OxfordNanoporeExperiment
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * <h1>Binary snapshot of a parsed and validated dataset structure</h1>
+ * <br>
+ * <p>Holds the map a parser created from a dataset, including the attached metadata, and writes it in a
+ * compact binary format. Loading a snapshot rebuilds the dataset with the data model factories without
+ * accessing the files of the dataset again.</p>
+ *
+ * <p>The format starts with a magic number, the format version and the dataset type, followed by one
+ * encoded value. Every value is a tag byte followed by its content, lengths and numbers are written as
+ * variable length integers. Strings are written once and referenced by their index afterwards, so keys
+ * and repeated names only take one or two bytes. Maps and lists that appear several times are
+ * written once as well.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class DatasetSnapshot {
+
+    /**
+     * The datasets that can be rebuilt from a snapshot
+     *
+     * @since 1.19.0
+     */
+    enum DatasetType {
+        MAX_QUANT_RUN_RESULT,
+        NF_CORE_PIPELINE_RESULT,
+        OXFORD_NANOPORE_EXPERIMENT
+    }
+
+    private static final int MAGIC = 0x51534E50
+    private static final int VERSION = 1
+    private static final int BUFFER_SIZE = 1 << 16
+
+    private static final int NULL = 0
+    private static final int FALSE = 1
+    private static final int TRUE = 2
+    private static final int INTEGER = 3
+    private static final int LONG = 4
+    private static final int DOUBLE = 5
+    private static final int BIG_DECIMAL = 6
+    private static final int BIG_INTEGER = 7
+    private static final int NEW_STRING = 8
+    private static final int STRING_REFERENCE = 9
+    private static final int MAP = 10
+    private static final int LIST = 11
+    private static final int OBJECT_REFERENCE = 12
+
+    private final DatasetType type
+
+    private final Map content
+
+    /**
+     * @param type the dataset the content describes
+     * @param content the validated map a parser created for the dataset
+     * @since 1.19.0
+     */
+    DatasetSnapshot(DatasetType type, Map content) {
+        this.type = Objects.requireNonNull(type, "Dataset type must not be null!")
+        this.content = Objects.requireNonNull(content, "Content must not be null!")
+    }
+
+    /**
+     * @return the dataset the content describes
+     * @since 1.19.0
+     */
+    DatasetType getType() {
+        return type
+    }
+
+    /**
+     * @return the map describing the dataset, in the structure the data model factories expect
+     * @since 1.19.0
+     */
+    Map getContent() {
+        return content
+    }
+
+    /**
+     * Rebuilds the dataset described by the snapshot
+     * @return a {@link MaxQuantRunResult}, {@link NfCorePipelineResult} or {@link OxfordNanoporeExperiment}
+     * depending on the type of the snapshot
+     * @since 1.19.0
+     */
+    Object toDataset() {
+        switch (type) {
+            case DatasetType.MAX_QUANT_RUN_RESULT:
+                return MaxQuantRunResult.createFrom(content)
+            case DatasetType.NF_CORE_PIPELINE_RESULT:
+                return NfCorePipelineResult.createFrom(content)
+            case DatasetType.OXFORD_NANOPORE_EXPERIMENT:
+                return OxfordNanoporeExperiment.create(content)
+            default:
+                throw new IllegalStateException("Unknown dataset type ${type}")
+        }
+    }
+
+    /**
+     * @return the maxQuant run result described by the snapshot
+     * @throws IllegalStateException if the snapshot describes another dataset type
+     * @since 1.19.0
+     */
+    MaxQuantRunResult toMaxQuantRunResult() {
+        requireType(DatasetType.MAX_QUANT_RUN_RESULT)
+        return MaxQuantRunResult.createFrom(content)
+    }
+
+    /**
+     * @return the nf-core pipeline result described by the snapshot
+     * @throws IllegalStateException if the snapshot describes another dataset type
+     * @since 1.19.0
+     */
+    NfCorePipelineResult toNfCorePipelineResult() {
+        requireType(DatasetType.NF_CORE_PIPELINE_RESULT)
+        return NfCorePipelineResult.createFrom(content)
+    }
+
+    /**
+     * @return the Oxford Nanopore experiment described by the snapshot
+     * @throws IllegalStateException if the snapshot describes another dataset type
+     * @since 1.19.0
+     */
+    OxfordNanoporeExperiment toOxfordNanoporeExperiment() {
+        requireType(DatasetType.OXFORD_NANOPORE_EXPERIMENT)
+        return OxfordNanoporeExperiment.create(content)
+    }
+
+    private void requireType(DatasetType expectedType) {
+        if (type != expectedType) {
+            throw new IllegalStateException("The snapshot contains a ${type} instead of a ${expectedType}")
+        }
+    }
+
+    /**
+     * Writes the snapshot to a file, an existing file is replaced
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     * @since 1.19.0
+     */
+    void writeTo(Path file) throws IOException {
+        OutputStream output = Files.newOutputStream(file)
+        try {
+            writeTo(output)
+        } finally {
+            output.close()
+        }
+    }
+
+    /**
+     * Writes the snapshot to a stream, the stream is flushed but not closed
+     * @param output the stream to write to
+     * @throws IOException if the stream cannot be written
+     * @throws IllegalArgumentException if the content contains values other than maps, lists,
+     * strings, numbers, booleans or null
+     * @since 1.19.0
+     */
+    void writeTo(OutputStream output) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE))
+        data.writeInt(MAGIC)
+        data.writeByte(VERSION)
+        data.writeUTF(type.name())
+        new SnapshotWriter(data).writeValue(content)
+        data.flush()
+    }
+
+    /**
+     * Reads a snapshot from a file
+     * @param file the file to read from
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     * @since 1.19.0
+     */
+    static DatasetSnapshot readFrom(Path file) throws IOException {
+        InputStream input = Files.newInputStream(file)
+        try {
+            return read(input, Files.size(file))
+        } finally {
+            input.close()
+        }
+    }
+
+    /**
+     * Reads a snapshot from a stream, the stream is not closed
+     * @param input the stream to read from
+     * @return the snapshot
+     * @throws IOException if the stream cannot be read or does not contain a snapshot
+     * @since 1.19.0
+     */
+    static DatasetSnapshot readFrom(InputStream input) throws IOException {
+        return read(input, Long.MAX_VALUE)
+    }
+
+    /*
+     * Lengths in the snapshot are checked against the length of the input if it is known
+     */
+    private static DatasetSnapshot read(InputStream input, long inputLength) throws IOException {
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(input, BUFFER_SIZE))
+        DataInputStream data = new DataInputStream(counter)
+        if (data.readInt() != MAGIC) {
+            throw new IOException("The input is not a dataset snapshot")
+        }
+        int version = data.readUnsignedByte()
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version ${version}")
+        }
+        DatasetType type
+        try {
+            type = DatasetType.valueOf(data.readUTF())
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown dataset type in snapshot", e)
+        }
+        Object content = new SnapshotReader(data, counter, inputLength).readValue()
+        if (!(content instanceof Map)) {
+            throw new IOException("The snapshot does not contain a dataset structure")
+        }
+        return new DatasetSnapshot(type, content as Map)
+    }
+
+    @CompileStatic
+    private static class SnapshotWriter {
+        private final DataOutputStream output
+        private final Map<String, Integer> strings = new HashMap<>()
+        private final Map<Object, Integer> objects = new IdentityHashMap<>()
+        // views of a compact file tree are created on every access and are identified by their node
+        private final Map<CompactFileTree.NodeKey, Integer> treeNodes = new HashMap<>()
+        private int objectCount
+
+        SnapshotWriter(DataOutputStream output) {
+            this.output = output
+        }
+
+        void writeValue(Object value) {
+            if (value == null) {
+                output.writeByte(NULL)
+            } else if (value instanceof CharSequence) {
+                writeString(value.toString())
+            } else if (value instanceof Boolean) {
+                output.writeByte((Boolean) value ? TRUE : FALSE)
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                output.writeByte(INTEGER)
+                writeSignedVarLong(((Number) value).longValue())
+            } else if (value instanceof Long) {
+                output.writeByte(LONG)
+                writeSignedVarLong((Long) value)
+            } else if (value instanceof Double || value instanceof Float) {
+                output.writeByte(DOUBLE)
+                output.writeDouble(((Number) value).doubleValue())
+            } else if (value instanceof BigDecimal) {
+                output.writeByte(BIG_DECIMAL)
+                writeBytes(value.toString().getBytes(StandardCharsets.US_ASCII))
+            } else if (value instanceof BigInteger) {
+                output.writeByte(BIG_INTEGER)
+                writeBytes(((BigInteger) value).toByteArray())
+            } else if (value instanceof Map) {
+                if (!writeReference(value)) {
+                    Map<?, ?> map = (Map<?, ?>) value
+                    output.writeByte(MAP)
+                    writeVarLong(map.size())
+                    for (Map.Entry<?, ?> entry : map.entrySet()) {
+                        writeString(String.valueOf(entry.getKey()))
+                        writeValue(entry.getValue())
+                    }
+                }
+            } else if (value instanceof Collection) {
+                if (!writeReference(value)) {
+                    Collection<?> list = (Collection<?>) value
+                    output.writeByte(LIST)
+                    writeVarLong(list.size())
+                    for (Object element : list) {
+                        writeValue(element)
+                    }
+                }
+            } else {
+                throw new IllegalArgumentException("Values of type ${value.getClass().getName()} cannot be written to a snapshot")
+            }
+        }
+
+        /*
+         * Maps and lists are numbered in the order they are first written
+         */
+        private boolean writeReference(Object value) {
+            CompactFileTree.NodeKey nodeKey = null
+            if (value instanceof CompactFileTree.NodeView) {
+                nodeKey = ((CompactFileTree.NodeView) value).referenceKey()
+            } else if (value instanceof CompactFileTree.ChildrenView) {
+                nodeKey = ((CompactFileTree.ChildrenView) value).referenceKey()
+            }
+            Integer id = nodeKey != null ? treeNodes.get(nodeKey) : objects.get(value)
+            if (id != null) {
+                output.writeByte(OBJECT_REFERENCE)
+                writeVarLong(id)
+                return true
+            }
+            if (nodeKey != null) {
+                treeNodes.put(nodeKey, objectCount++)
+            } else {
+                objects.put(value, objectCount++)
+            }
+            return false
+        }
+
+        private void writeString(String value) {
+            Integer id = strings.get(value)
+            if (id != null) {
+                output.writeByte(STRING_REFERENCE)
+                writeVarLong(id)
+            } else {
+                strings.put(value, strings.size())
+                output.writeByte(NEW_STRING)
+                writeBytes(value.getBytes(StandardCharsets.UTF_8))
+            }
+        }
+
+        private void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length)
+            output.write(bytes)
+        }
+
+        private void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63))
+        }
+
+        private void writeVarLong(long value) {
+            long remaining = value
+            while ((remaining & ~0x7FL) != 0L) {
+                output.writeByte((int) ((remaining & 0x7FL) | 0x80L))
+                remaining = remaining >>> 7
+            }
+            output.writeByte((int) remaining)
+        }
+    }
+
+    @CompileStatic
+    private static class SnapshotReader {
+        /*
+         * Maps and lists are not sized beyond this before their entries were read
+         */
+        private static final int MAX_INITIAL_CAPACITY = 1024
+        private final DataInputStream input
+        private final CountingInputStream counter
+        private final long inputLength
+        private final List<String> strings = new ArrayList<>()
+        private final List<Object> objects = new ArrayList<>()
+
+        SnapshotReader(DataInputStream input, CountingInputStream counter, long inputLength) {
+            this.input = input
+            this.counter = counter
+            this.inputLength = inputLength
+        }
+
+        Object readValue() {
+            int tag = input.readUnsignedByte()
+            switch (tag) {
+                case NULL:
+                    return null
+                case FALSE:
+                    return Boolean.FALSE
+                case TRUE:
+                    return Boolean.TRUE
+                case INTEGER:
+                    return (int) readSignedVarLong()
+                case LONG:
+                    return readSignedVarLong()
+                case DOUBLE:
+                    return input.readDouble()
+                case BIG_DECIMAL:
+                    return new BigDecimal(new String(readBytes(), StandardCharsets.US_ASCII))
+                case BIG_INTEGER:
+                    return new BigInteger(readBytes())
+                case NEW_STRING:
+                case STRING_REFERENCE:
+                    return readString(tag)
+                case MAP:
+                    return readMap()
+                case LIST:
+                    return readList()
+                case OBJECT_REFERENCE:
+                    return readReference(objects)
+                default:
+                    throw new IOException("Unknown value tag ${tag} in snapshot")
+            }
+        }
+
+        private Map<String, Object> readMap() {
+            // every entry takes at least a key tag, a key and a value tag
+            int size = readSize(3)
+            // sized to avoid rehashing, the load factor is 0.75
+            Map<String, Object> map = new LinkedHashMap<>(Math.floorDiv(Math.min(size, MAX_INITIAL_CAPACITY) * 4, 3) + 1)
+            objects.add(map)
+            for (int i = 0; i < size; i++) {
+                String key = readString(input.readUnsignedByte())
+                map.put(key, readValue())
+            }
+            return map
+        }
+
+        private List<Object> readList() {
+            int size = readSize(1)
+            List<Object> list = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY))
+            objects.add(list)
+            for (int i = 0; i < size; i++) {
+                list.add(readValue())
+            }
+            return list
+        }
+
+        private String readString(int tag) {
+            if (tag == STRING_REFERENCE) {
+                return readReference(strings)
+            }
+            if (tag != NEW_STRING) {
+                throw new IOException("Expected a string in snapshot, found tag ${tag}")
+            }
+            String value = new String(readBytes(), StandardCharsets.UTF_8)
+            strings.add(value)
+            return value
+        }
+
+        private <T> T readReference(List<T> values) {
+            int index = readLength()
+            if (index >= values.size()) {
+                throw new IOException("Corrupt snapshot, reference ${index} points to no earlier value")
+            }
+            return values.get(index)
+        }
+
+        private byte[] readBytes() {
+            int size = readSize(1)
+            // the array grows with the bytes read, in case the length of the input is not known
+            byte[] bytes = new byte[Math.min(size, BUFFER_SIZE)]
+            int read = 0
+            while (read < size) {
+                if (read == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, (int) Math.min((long) size, 2L * bytes.length))
+                }
+                input.readFully(bytes, read, bytes.length - read)
+                read = bytes.length
+            }
+            return bytes
+        }
+
+        /*
+         * Reads the number of elements of a value and checks that the rest of the input can hold them
+         */
+        private int readSize(int minimumBytesPerElement) {
+            int size = readLength()
+            long remaining = inputLength - counter.count
+            if (size > remaining / minimumBytesPerElement) {
+                throw new IOException("Corrupt snapshot, ${size} elements do not fit into the remaining ${remaining} bytes")
+            }
+            return size
+        }
+
+        private int readLength() {
+            long length = readVarLong()
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid length ${length} in snapshot")
+            }
+            return (int) length
+        }
+
+        private long readSignedVarLong() {
+            long value = readVarLong()
+            return (value >>> 1) ^ -(value & 1L)
+        }
+
+        private long readVarLong() {
+            long value = 0
+            int shift = 0
+            while (shift < 64) {
+                int current = input.readUnsignedByte()
+                value |= ((long) (current & 0x7F)) << shift
+                if ((current & 0x80) == 0) {
+                    return value
+                }
+                shift += 7
+            }
+            throw new IOException("Malformed variable length integer in snapshot")
+        }
+    }
+
+    /**
+     * Counts the bytes that were read from the underlying stream
+     */
+    @CompileStatic
+    private static class CountingInputStream extends FilterInputStream {
+        long count
+
+        CountingInputStream(InputStream input) {
+            super(input)
+        }
+
+        @Override
+        int read() throws IOException {
+            int value = super.read()
+            if (value != -1) {
+                count++
+            }
+            return value
+        }
+
+        @Override
+        int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length)
+            if (read > 0) {
+                count += read
+            }
+            return read
+        }
+
+        @Override
+        long skip(long length) throws IOException {
+            long skipped = super.skip(length)
+            count += skipped
+            return skipped
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package life.qbic.utils
+
+import groovy.transform.CompileStatic
+import life.qbic.datasets.parsers.ParseCancelledException
+import life.qbic.datasets.parsers.ParseOptions
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.zip.GZIPInputStream
+
+/**
+ * <h1>Counts reads and bases of gzip compressed fastq files</h1>
+ * <br>
+ * <p>Every file is streamed through an inflater with large buffers and scanned byte by byte,
+ * no String is created for any record. Several files are processed in parallel.</p>
+ *
+ * <p>Files consisting of several concatenated gzip members are read completely.</p>
+ *
+ * <p>The deadline and cancellation of the {@link ParseOptions} are checked for every buffer of
+ * one MiB of decompressed data.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class FastqReadCounter {
+
+    private static final int INFLATER_BUFFER_SIZE = 1 << 16
+
+    private static final int READ_BUFFER_SIZE = 1 << 20
+
+    private static final int NEWLINE = 10
+    private static final int CARRIAGE_RETURN = 13
+
+    /**
+     * Counts the reads of all files per group, e.g. per barcode folder, using all available processors
+     * @param filesPerGroup the fastq.gz files to count, grouped by an arbitrary key
+     * @return the summed counts per group, in the order of the provided groups
+     * @throws IOException if one of the files cannot be read
+     * @since 1.19.0
+     */
+    static Map<String, ReadCount> countReads(Map<String, List<Path>> filesPerGroup) throws IOException {
+        return countReads(filesPerGroup, Runtime.getRuntime().availableProcessors())
+    }
+
+    /**
+     * Counts the reads of all files per group, e.g. per barcode folder
+     * @param filesPerGroup the fastq.gz files to count, grouped by an arbitrary key
+     * @param parallelism the maximal number of files that are decompressed concurrently
+     * @return the summed counts per group, in the order of the provided groups
+     * @throws IOException if one of the files cannot be read
+     * @since 1.19.0
+     */
+    static Map<String, ReadCount> countReads(Map<String, List<Path>> filesPerGroup, int parallelism) throws IOException {
+        return countReads(filesPerGroup, parallelism, new ParseOptions())
+    }
+
+    /**
+     * Counts the reads of all files per group, e.g. per barcode folder
+     * @param filesPerGroup the fastq.gz files to count, grouped by an arbitrary key
+     * @param parallelism the maximal number of files that are decompressed concurrently
+     * @param options provide the deadline and cancellation that are checked while the files are read
+     * @return the summed counts per group, in the order of the provided groups
+     * @throws IOException if one of the files cannot be read
+     * @throws life.qbic.datasets.parsers.ParseTimeoutException if the deadline of the options passed
+     * @throws ParseCancelledException if the parse was cancelled
+     * @since 1.19.0
+     */
+    static Map<String, ReadCount> countReads(Map<String, List<Path>> filesPerGroup, int parallelism,
+                                             ParseOptions options) throws IOException {
+        int fileCount = 0
+        for (List<Path> files : filesPerGroup.values()) {
+            fileCount += files.size()
+        }
+        Map<String, ReadCount> counts = new LinkedHashMap<>()
+        if (fileCount == 0) {
+            filesPerGroup.keySet().each { String group -> counts.put(group, new ReadCount(0, 0)) }
+            return counts
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, fileCount)))
+        try {
+            Map<String, List<Future<ReadCount>>> futures = new LinkedHashMap<>()
+            filesPerGroup.each { String group, List<Path> files ->
+                List<Future<ReadCount>> groupFutures = []
+                for (Path file : files) {
+                    groupFutures.add(executor.submit(new FileCounter(file, options)))
+                }
+                futures.put(group, groupFutures)
+            }
+            futures.each { String group, List<Future<ReadCount>> groupFutures ->
+                long reads = 0
+                long bases = 0
+                for (Future<ReadCount> future : groupFutures) {
+                    ReadCount count = awaitCount(future)
+                    reads += count.readCount
+                    bases += count.totalBases
+                }
+                counts.put(group, new ReadCount(reads, bases))
+            }
+            return counts
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private static ReadCount awaitCount(Future<ReadCount> future) {
+        try {
+            return future.get()
+        } catch (ExecutionException e) {
+            throw e.getCause()
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt()
+            throw new ParseCancelledException("The parsing thread was interrupted")
+        }
+    }
+
+    /**
+     * Counts the reads and bases of one gzip compressed fastq file
+     * @param fastqFile the path to the fastq.gz file
+     * @return the number of reads and the number of bases in the file
+     * @throws IOException if the file cannot be read or is not gzip compressed
+     * @since 1.19.0
+     */
+    static ReadCount countReads(Path fastqFile) throws IOException {
+        return countReads(fastqFile, new ParseOptions())
+    }
+
+    /**
+     * Counts the reads and bases of one gzip compressed fastq file
+     * @param fastqFile the path to the fastq.gz file
+     * @param options provide the deadline and cancellation that are checked while the file is read
+     * @return the number of reads and the number of bases in the file
+     * @throws IOException if the file cannot be read or is not gzip compressed
+     * @throws life.qbic.datasets.parsers.ParseTimeoutException if the deadline of the options passed
+     * @throws ParseCancelledException if the parse was cancelled
+     * @since 1.19.0
+     */
+    static ReadCount countReads(Path fastqFile, ParseOptions options) throws IOException {
+        options.checkpoint()
+        // empty placeholder files do not contain a gzip header
+        if (Files.size(fastqFile) == 0) {
+            return new ReadCount(0, 0)
+        }
+        InputStream input = new GZIPInputStream(Files.newInputStream(fastqFile), INFLATER_BUFFER_SIZE)
+        try {
+            return count(input, options)
+        } finally {
+            input.close()
+        }
+    }
+
+    /*
+     * A fastq record consists of four lines: header, sequence, separator and qualities.
+     * The number of bases is the length of the sequence line.
+     */
+    private static ReadCount count(InputStream input, ParseOptions options) {
+        byte[] buffer = new byte[READ_BUFFER_SIZE]
+        long reads = 0
+        long bases = 0
+        int lineInRecord = 0
+        long lineLength = 0
+        int read
+        while ((read = input.read(buffer)) != -1) {
+            options.checkpoint()
+            for (int i = 0; i < read; i++) {
+                int value = buffer[i]
+                if (value == NEWLINE) {
+                    if (lineInRecord == 1) {
+                        reads++
+                        bases += lineLength
+                    }
+                    lineInRecord = (lineInRecord + 1) & 3
+                    lineLength = 0
+                } else if (value != CARRIAGE_RETURN) {
+                    lineLength++
+                }
+            }
+        }
+        if (lineInRecord == 1 && lineLength > 0) {
+            reads++
+            bases += lineLength
+        }
+        return new ReadCount(reads, bases)
+    }
+
+    /**
+     * Number of reads and bases of one or more fastq files
+     *
+     * @since 1.19.0
+     */
+    @CompileStatic
+    static class ReadCount {
+        final long readCount
+        final long totalBases
+
+        ReadCount(long readCount, long totalBases) {
+            this.readCount = readCount
+            this.totalBases = totalBases
+        }
+
+        /**
+         * @return the counts as key value pairs
+         * @since 1.19.0
+         */
+        Map<String, Long> toMap() {
+            return ["read_count": readCount, "total_bases": totalBases]
+        }
+    }
+
+    @CompileStatic
+    private static class FileCounter implements Callable<ReadCount> {
+        private final Path file
+        private final ParseOptions options
+
+        FileCounter(Path file, ParseOptions options) {
+            this.file = file
+            this.options = options
+        }
+
+        @Override
+        ReadCount call() throws IOException {
+            return FastqReadCounter.countReads(file, options)
+        }
+    }
+}
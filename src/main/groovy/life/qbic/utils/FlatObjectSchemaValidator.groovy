@@ -0,0 +1,229 @@
+package life.qbic.utils
+
+import groovy.transform.CompileStatic
+import org.json.JSONArray
+import org.json.JSONObject
+
+import java.util.function.Supplier
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+/**
+ * <h1>Validates flat property maps against a compiled JSON schema</h1>
+ * <br>
+ * <p>The schema is compiled once into a list of property rules that are checked directly on the
+ * {@link Map}, without converting it to JSON. Only schemas describing a flat object are supported:
+ * the properties may be constrained by <code>type</code>, <code>enum</code>, <code>pattern</code>,
+ * <code>minLength</code> and <code>maxLength</code>, the object by <code>required</code> and a
+ * boolean <code>additionalProperties</code>. {@link #compile(JSONObject)} returns null for any
+ * other schema.</p>
+ *
+ * <p>The validator only decides whether a map is certainly valid. For invalid maps and for values
+ * whose JSON representation is not obvious, e.g. nested maps or floating point numbers,
+ * {@link #isValid(Map)} returns false and the map has to be validated by the generic schema engine,
+ * which then also provides the validation messages. Checking a valid map does not allocate memory,
+ * apart from an iterator if the map contains keys that are not described by the schema.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class FlatObjectSchemaValidator {
+
+    private static final Set<String> ANNOTATION_KEYWORDS = ["title", "description", "\$comment", "examples", "default"] as Set
+
+    private static final Set<String> OBJECT_KEYWORDS = ANNOTATION_KEYWORDS + (["\$schema", "\$id", "id", "definitions",
+                                                                               "type", "properties", "required",
+                                                                               "additionalProperties"] as Set<String>)
+
+    private static final Set<String> PROPERTY_KEYWORDS = ANNOTATION_KEYWORDS + (["type", "enum", "pattern",
+                                                                                 "minLength", "maxLength"] as Set<String>)
+
+    private final PropertyRule[] rules
+
+    private final boolean additionalPropertiesAllowed
+
+    private FlatObjectSchemaValidator(PropertyRule[] rules, boolean additionalPropertiesAllowed) {
+        this.rules = rules
+        this.additionalPropertiesAllowed = additionalPropertiesAllowed
+    }
+
+    /**
+     * Compiles a JSON schema into a validator
+     * @param schema the raw JSON schema
+     * @return the compiled validator or null if the schema uses features that are not supported
+     * @since 1.19.0
+     */
+    static FlatObjectSchemaValidator compile(JSONObject schema) {
+        if (!OBJECT_KEYWORDS.containsAll(schema.keySet()) || schema.optString("type") != "object") {
+            return null
+        }
+        Object additionalProperties = schema.opt("additionalProperties")
+        if (additionalProperties != null && !(additionalProperties instanceof Boolean)) {
+            return null
+        }
+        JSONObject properties = schema.optJSONObject("properties") ?: new JSONObject()
+        JSONArray required = schema.optJSONArray("required") ?: new JSONArray()
+        Set<String> requiredNames = new HashSet<>()
+        for (int i = 0; i < required.length(); i++) {
+            Object name = required.get(i)
+            if (!(name instanceof String) || !properties.has((String) name)) {
+                return null
+            }
+            requiredNames.add((String) name)
+        }
+        List<PropertyRule> rules = []
+        for (String name : properties.keySet()) {
+            Object propertySchema = properties.get(name)
+            if (!(propertySchema instanceof JSONObject)) {
+                return null
+            }
+            PropertyRule rule = PropertyRule.compile(name, (JSONObject) propertySchema, requiredNames.contains(name))
+            if (rule == null) {
+                return null
+            }
+            rules.add(rule)
+        }
+        boolean additionalPropertiesAllowed = additionalProperties == null || (Boolean) additionalProperties
+        return new FlatObjectSchemaValidator(rules.toArray(new PropertyRule[0]), additionalPropertiesAllowed)
+    }
+
+    /**
+     * Checks a map against the compiled schema
+     * @param propertyMap the map to check
+     * @return true if the map is valid, false if it is invalid or has to be checked by the generic schema engine
+     * @since 1.19.0
+     */
+    boolean isValid(Map propertyMap) {
+        if (propertyMap == null) {
+            return false
+        }
+        int describedEntries = 0
+        for (PropertyRule rule : rules) {
+            Object value = propertyMap.get(rule.name)
+            if (value == null) {
+                if (rule.required || propertyMap.containsKey(rule.name)) {
+                    return false
+                }
+                continue
+            }
+            if (!rule.accepts(value)) {
+                return false
+            }
+            describedEntries++
+        }
+        if (describedEntries == propertyMap.size()) {
+            return true
+        }
+        if (!additionalPropertiesAllowed) {
+            return false
+        }
+        // keys that are not strings might serialize to the name of a described property
+        for (Object key : propertyMap.keySet()) {
+            if (!(key instanceof String)) {
+                return false
+            }
+        }
+        return true
+    }
+
+    private static class PropertyRule {
+
+        final String name
+        final boolean required
+        final String type
+        final Set<String> allowedValues
+        final ThreadLocal<Matcher> matcher
+        final int minLength
+        final int maxLength
+
+        private PropertyRule(String name, boolean required, String type, Set<String> allowedValues,
+                             Pattern pattern, int minLength, int maxLength) {
+            this.name = name
+            this.required = required
+            this.type = type
+            this.allowedValues = allowedValues
+            this.matcher = pattern == null ? null : ThreadLocal.withInitial({ pattern.matcher("") } as Supplier<Matcher>)
+            this.minLength = minLength
+            this.maxLength = maxLength
+        }
+
+        static PropertyRule compile(String name, JSONObject schema, boolean required) {
+            if (!PROPERTY_KEYWORDS.containsAll(schema.keySet())) {
+                return null
+            }
+            Object type = schema.opt("type")
+            if (type != null && !(type in ["string", "integer", "boolean"])) {
+                return null
+            }
+            Set<String> allowedValues = null
+            if (schema.has("enum")) {
+                JSONArray values = schema.optJSONArray("enum")
+                if (values == null) {
+                    return null
+                }
+                allowedValues = new HashSet<>()
+                for (int i = 0; i < values.length(); i++) {
+                    Object value = values.get(i)
+                    if (!(value instanceof String)) {
+                        return null
+                    }
+                    allowedValues.add((String) value)
+                }
+            }
+            Object pattern = schema.opt("pattern")
+            Object minLength = schema.opt("minLength")
+            Object maxLength = schema.opt("maxLength")
+            if ((pattern != null && !(pattern instanceof String))
+                    || (minLength != null && !(minLength instanceof Integer))
+                    || (maxLength != null && !(maxLength instanceof Integer))) {
+                return null
+            }
+            return new PropertyRule(name, required, (String) type, allowedValues,
+                    pattern == null ? null : Pattern.compile((String) pattern),
+                    minLength == null ? 0 : (Integer) minLength,
+                    maxLength == null ? Integer.MAX_VALUE : (Integer) maxLength)
+        }
+
+        boolean accepts(Object value) {
+            if (value instanceof String) {
+                return acceptsString((String) value)
+            }
+            if (allowedValues != null || matcher != null || minLength > 0 || maxLength != Integer.MAX_VALUE) {
+                // string keywords are ignored for other types, but the enum would not contain the value
+                return allowedValues == null && isTyped(value)
+            }
+            return isTyped(value)
+        }
+
+        private boolean isTyped(Object value) {
+            boolean isInteger = value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+            boolean isBoolean = value instanceof Boolean
+            switch (type) {
+                case "integer":
+                    return isInteger
+                case "boolean":
+                    return isBoolean
+                case "string":
+                    return false
+                default:
+                    return isInteger || isBoolean
+            }
+        }
+
+        private boolean acceptsString(String value) {
+            if (type != null && type != "string") {
+                return false
+            }
+            if (allowedValues != null && !allowedValues.contains(value)) {
+                return false
+            }
+            if (minLength > 0 || maxLength != Integer.MAX_VALUE) {
+                int length = value.codePointCount(0, value.length())
+                if (length < minLength || length > maxLength) {
+                    return false
+                }
+            }
+            return matcher == null || matcher.get().reset(value).find()
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package life.qbic.utils
+
+import groovy.transform.CompileStatic
+
+import java.nio.file.FileVisitResult
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.SimpleFileVisitor
+import java.nio.file.attribute.BasicFileAttributes
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.function.BiConsumer
+import java.util.function.Function
+import java.util.function.Supplier
+
+/**
+ * <h1>Deletes hidden files and folders in the background</h1>
+ * <br>
+ * <p>Every hidden path is walked with {@link Files#walkFileTree}, symbolic links are not followed.
+ * The files found are deleted in parallel batches, the directories afterwards from the deepest
+ * level upwards. Files that cannot be deleted do not stop the cleanup, they are reported
+ * in the {@link Report}.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class HiddenFileCleanup {
+
+    private static final int BATCH_SIZE = 256
+
+    /**
+     * Deletes the hidden files and folders asynchronously
+     * @param hiddenPaths the hidden files and folders to delete including their content
+     * @param dryRun if true, nothing is deleted and the report lists what would have been deleted
+     * @param parallelism the maximal number of batches that are deleted concurrently
+     * @return a future that completes with the report once all paths were processed
+     * @since 1.19.0
+     */
+    static CompletableFuture<Report> deleteAsync(Collection<Path> hiddenPaths, boolean dryRun, int parallelism) {
+        List<Path> paths = new ArrayList<>(hiddenPaths)
+        if (paths.isEmpty()) {
+            return CompletableFuture.completedFuture(new Report(dryRun, [], [:]))
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism))
+        CompletableFuture<Report> cleanup = CompletableFuture
+                .supplyAsync({ collect(paths) } as Supplier<Collected>, executor)
+                .thenCompose({ Collected collected ->
+                    dryRun ? dryRunReport(collected) : delete(collected, executor)
+                } as Function<Collected, CompletableFuture<Report>>)
+        cleanup.whenComplete({ Report report, Throwable error -> executor.shutdown() } as BiConsumer<Report, Throwable>)
+        return cleanup
+    }
+
+    private static Collected collect(List<Path> paths) {
+        Collected collected = new Collected()
+        for (Path path : paths) {
+            try {
+                Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                    @Override
+                    FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        collected.files.add(file)
+                        return FileVisitResult.CONTINUE
+                    }
+
+                    @Override
+                    FileVisitResult visitFileFailed(Path file, IOException exception) {
+                        collected.failures.put(file, exception)
+                        return FileVisitResult.CONTINUE
+                    }
+
+                    @Override
+                    FileVisitResult postVisitDirectory(Path directory, IOException exception) {
+                        if (exception != null) {
+                            collected.failures.put(directory, exception)
+                        } else {
+                            // children are visited before their parent, so the list is ordered deepest first
+                            collected.directories.add(directory)
+                        }
+                        return FileVisitResult.CONTINUE
+                    }
+                })
+            } catch (IOException e) {
+                collected.failures.put(path, e)
+            }
+        }
+        return collected
+    }
+
+    private static CompletableFuture<Report> dryRunReport(Collected collected) {
+        List<Path> candidates = new ArrayList<>(collected.files)
+        candidates.addAll(collected.directories)
+        return CompletableFuture.completedFuture(new Report(true, candidates, collected.failures))
+    }
+
+    private static CompletableFuture<Report> delete(Collected collected, ExecutorService executor) {
+        Queue<Path> deleted = new ConcurrentLinkedQueue<>()
+        Map<Path, IOException> failures = new ConcurrentHashMap<>(collected.failures)
+        List<CompletableFuture<Void>> batches = []
+        for (int start = 0; start < collected.files.size(); start += BATCH_SIZE) {
+            List<Path> batch = collected.files.subList(start, Math.min(start + BATCH_SIZE, collected.files.size()))
+            batches.add(CompletableFuture.runAsync({ deleteAll(batch, deleted, failures) } as Runnable, executor))
+        }
+        return CompletableFuture.allOf(batches as CompletableFuture[]).thenApplyAsync({ Void ignored ->
+            // directories are only empty once all files are gone
+            deleteAll(collected.directories, deleted, failures)
+            return new Report(false, new ArrayList<Path>(deleted), failures)
+        } as Function<Void, Report>, executor)
+    }
+
+    private static void deleteAll(List<Path> paths, Queue<Path> deleted, Map<Path, IOException> failures) {
+        for (Path path : paths) {
+            try {
+                if (Files.deleteIfExists(path)) {
+                    deleted.add(path)
+                }
+            } catch (IOException e) {
+                failures.put(path, e)
+            }
+        }
+    }
+
+    @CompileStatic
+    private static class Collected {
+        final List<Path> files = []
+        final List<Path> directories = []
+        final Map<Path, IOException> failures = new LinkedHashMap<>()
+    }
+
+    /**
+     * Outcome of a cleanup
+     *
+     * @since 1.19.0
+     */
+    @CompileStatic
+    static class Report {
+        private final boolean dryRun
+        private final List<Path> deletedPaths
+        private final Map<Path, IOException> failures
+
+        Report(boolean dryRun, List<Path> deletedPaths, Map<Path, IOException> failures) {
+            this.dryRun = dryRun
+            this.deletedPaths = Collections.unmodifiableList(deletedPaths)
+            this.failures = Collections.unmodifiableMap(failures)
+        }
+
+        /**
+         * @return true if nothing was deleted because the cleanup ran as dry run
+         * @since 1.19.0
+         */
+        boolean isDryRun() {
+            return dryRun
+        }
+
+        /**
+         * @return the deleted files and folders or, for a dry run, the ones that would have been deleted
+         * @since 1.19.0
+         */
+        List<Path> getDeletedPaths() {
+            return deletedPaths
+        }
+
+        /**
+         * @return the paths that could not be listed or deleted with the cause
+         * @since 1.19.0
+         */
+        Map<Path, IOException> getFailures() {
+            return failures
+        }
+
+        /**
+         * @return true if no path failed
+         * @since 1.19.0
+         */
+        boolean isSuccessful() {
+            return failures.isEmpty()
+        }
+    }
+}
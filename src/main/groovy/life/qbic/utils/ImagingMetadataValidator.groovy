@@ -1,6 +1,7 @@
 package life.qbic.utils
 
 import com.fasterxml.jackson.databind.ObjectMapper
+import groovy.transform.PackageScope
 import groovy.util.logging.Log4j2
 import org.everit.json.schema.Schema
 import org.everit.json.schema.ValidationException
@@ -14,9 +15,18 @@ class ImagingMetadataValidator {
 
     /**
      * Validates metadata properties for one imaging dataset
+     *
+     * <p>Flat property maps are checked directly by a validator compiled from the schema. Maps that
+     * the compiled validator cannot accept are converted to json and validated by the generic schema
+     * engine, which reports the validation errors.</p>
+     *
      * @param propertyMap Map of key - value pairs of metadata for one dataset
      */
     static void validateImagingProperties(Map propertyMap) {
+        FlatObjectSchemaValidator fastPath = ImageMetadataSchema.FAST_PATH
+        if (fastPath != null && fastPath.isValid(propertyMap)) {
+            return
+        }
         // Step1: convert properties to json
 
         String json = mapToJson(propertyMap)
@@ -48,12 +58,30 @@ class ImagingMetadataValidator {
      * @throws org.everit.json.schema.ValidationException
      */
     private static void validateJson(String json) throws ValidationException {
-        // Step1: load schema
         JSONObject jsonObject = new JSONObject(json)
-        InputStream schemaStream = ImageMetadata.getSchemaAsStream()
-        JSONObject rawSchema = new JSONObject(new JSONTokener(schemaStream))
-        Schema jsonSchema = SchemaLoader.load(rawSchema)
-        // Step2: validate against schema return if valid, throw exception if invalid
-        jsonSchema.validate(jsonObject)
+        // validate against the cached schema, return if valid, throw exception if invalid
+        ImageMetadataSchema.SCHEMA.validate(jsonObject)
+    }
+
+    /**
+     * Loads the imaging metadata schema once, when it is used for the first time
+     */
+    @PackageScope
+    static class ImageMetadataSchema {
+
+        static final JSONObject RAW_SCHEMA = loadRawSchema()
+
+        static final Schema SCHEMA = SchemaLoader.load(RAW_SCHEMA)
+
+        static final FlatObjectSchemaValidator FAST_PATH = FlatObjectSchemaValidator.compile(RAW_SCHEMA)
+
+        private static JSONObject loadRawSchema() {
+            InputStream schemaStream = ImageMetadata.getSchemaAsStream()
+            try {
+                return new JSONObject(new JSONTokener(schemaStream))
+            } finally {
+                schemaStream.close()
+            }
+        }
     }
 }
@@ -0,0 +1,38 @@
+package life.qbic.utils
+
+import life.qbic.datasets.parsers.DatasetParser
+import life.qbic.datasets.parsers.DatasetParserProvider
+import life.qbic.datasets.parsers.DirectoryListing
+
+/**
+ * Detects maxQuant run output by the <code>mqpar.xml</code> run parameters next to a
+ * <code>txt</code> or <code>combined/txt</code> folder.
+ *
+ * @since 1.19.0
+ */
+class MaxQuantParserProvider implements DatasetParserProvider {
+
+    /** {@InheritDoc} */
+    @Override
+    String getDatasetType() {
+        return "maxQuant run result"
+    }
+
+    /** {@InheritDoc} */
+    @Override
+    boolean matches(DirectoryListing rootListing) throws IOException {
+        if (!rootListing.hasFile("mqpar.xml")) {
+            return false
+        }
+        if (rootListing.hasDirectory("txt")) {
+            return true
+        }
+        return rootListing.hasDirectory("combined") && rootListing.subdirectory("combined").hasDirectory("txt")
+    }
+
+    /** {@InheritDoc} */
+    @Override
+    DatasetParser<?> createParser() {
+        return new MaxQuantParser()
+    }
+}
@@ -0,0 +1,42 @@
+package life.qbic.utils
+
+import life.qbic.datasets.parsers.DataParserException
+
+/**
+ * Thrown to indicate that the metadata of one or more measurements of a Nanopore experiment
+ * could not be parsed, e.g. because the <code>guppy_version</code> or <code>position</code> entry is missing.
+ *
+ * <p>The metadata of all measurements is parsed before the exception is thrown, so it lists every
+ * failing measurement. The cause is the failure of the first failing measurement.</p>
+ *
+ * @since 1.19.0
+ */
+class MeasurementMetadataException extends DataParserException {
+
+    private final Map<String, Throwable> failures
+
+    /**
+     * @param failures the failure per measurement name, in the order of the measurements
+     * @since 1.19.0
+     */
+    MeasurementMetadataException(Map<String, Throwable> failures) {
+        super(describe(failures), failures.values().first())
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures))
+    }
+
+    private static String describe(Map<String, Throwable> failures) {
+        String details = failures.collect { String measurement, Throwable failure ->
+            "${measurement}: ${failure.message}"
+        }.join("; ")
+        return "Could not parse the metadata of ${failures.size()} measurement(s): ${details}"
+    }
+
+    /**
+     * @return the failure per measurement name, in the order of the measurements
+     * @since 1.19.0
+     */
+    Map<String, Throwable> getFailures() {
+        return failures
+    }
+
+}
@@ -0,0 +1,70 @@
+package life.qbic.utils
+
+import life.qbic.datamodel.datasets.OxfordNanoporeExperiment
+
+import java.util.concurrent.CompletableFuture
+
+/**
+ * <h1>Result of a Nanopore parse including the optional stages</h1>
+ * <br>
+ * <p>Holds the parsed {@link OxfordNanoporeExperiment} next to the results of the optional stages
+ * that were enabled in {@link NanoporeParser.Options}.</p>
+ *
+ * @since 1.19.0
+ */
+class NanoporeParseResult {
+
+    private final OxfordNanoporeExperiment experiment
+
+    private final Map<String, Map<String, FastqReadCounter.ReadCount>> readCounts
+
+    private final CompletableFuture<HiddenFileCleanup.Report> hiddenFileCleanup
+
+    private final DatasetSnapshot snapshot
+
+    NanoporeParseResult(OxfordNanoporeExperiment experiment, Map<String, Map<String, FastqReadCounter.ReadCount>> readCounts,
+                        CompletableFuture<HiddenFileCleanup.Report> hiddenFileCleanup, DatasetSnapshot snapshot) {
+        this.experiment = Objects.requireNonNull(experiment, "Experiment must not be null!")
+        this.readCounts = Collections.unmodifiableMap(readCounts)
+        this.hiddenFileCleanup = Objects.requireNonNull(hiddenFileCleanup, "Hidden file cleanup must not be null!")
+        this.snapshot = snapshot
+    }
+
+    /**
+     * @return the successfully parsed and validated experiment
+     * @since 1.19.0
+     */
+    OxfordNanoporeExperiment getExperiment() {
+        return experiment
+    }
+
+    /**
+     * Read and base counts of the fastq.gz files per measurement name and per fastq or barcode
+     * folder path relative to the measurement, e.g. <code>fastq_pass/QMFPJ005AE</code>.
+     * @return the counts or an empty map if the counting stage was not enabled
+     * @since 1.19.0
+     */
+    Map<String, Map<String, FastqReadCounter.ReadCount>> getReadCounts() {
+        return readCounts
+    }
+
+    /**
+     * The hidden files and folders of the dataset are deleted in the background after a
+     * successful validation.
+     * @return a future that completes with the report of the cleanup
+     * @since 1.19.0
+     */
+    CompletableFuture<HiddenFileCleanup.Report> getHiddenFileCleanup() {
+        return hiddenFileCleanup
+    }
+
+    /**
+     * The validated structure including the metadata, which can be written to a file and
+     * loaded later on without accessing the dataset again.
+     * @return the snapshot of the experiment
+     * @since 1.19.0
+     */
+    Optional<DatasetSnapshot> getSnapshot() {
+        return Optional.ofNullable(snapshot)
+    }
+}
@@ -5,53 +5,210 @@ import groovy.json.JsonSlurper
 import groovy.util.logging.Log4j2
 import life.qbic.datamodel.instruments.OxfordNanoporeInstrumentOutputDoradoMinimal
 import life.qbic.datamodel.instruments.OxfordNanoporeInstrumentOutputMinimal
+import life.qbic.datasets.parsers.DataParserException
+import life.qbic.datasets.parsers.DatasetParser
+import life.qbic.datasets.parsers.DatasetValidationException
+import life.qbic.datasets.parsers.DirectoryListing
+import life.qbic.datasets.parsers.ParseCancelledException
+import life.qbic.datasets.parsers.ParseOptions
+import life.qbic.datasets.parsers.ParseTimeoutException
 import net.jimblackler.jsonschemafriend.Schema
 import net.jimblackler.jsonschemafriend.SchemaStore
 import net.jimblackler.jsonschemafriend.ValidationException
 import net.jimblackler.jsonschemafriend.Validator
 
+import java.nio.file.DirectoryStream
+import java.nio.file.Files
 import java.nio.file.NotDirectoryException
 import java.nio.file.Path
-import java.nio.file.Paths
 import java.text.ParseException
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 import life.qbic.datamodel.datasets.OxfordNanoporeExperiment
-import java.util.stream.Collectors
+import java.util.function.BiPredicate
+import java.util.function.Function
 
 @Log4j2
-class NanoporeParser {
+class NanoporeParser implements DatasetParser<OxfordNanoporeExperiment> {
+
+    private static final FASTQ_FOLDER_NAMES = ["fastq_pass", "fastq_fail"]
+
+    /**
+     * Optional stages that can be enabled when parsing a Nanopore experiment
+     *
+     * @since 1.19.0
+     */
+    static class Options {
+        /**
+         * Counts reads and bases of all fastq.gz files per barcode folder of the fastq_pass
+         * and fastq_fail folders
+         */
+        boolean countFastqReads = false
+        /**
+         * Computes read statistics from the sequencing summary of every measurement. The summaries
+         * list every read and can be several GB large, so they are only read if enabled.
+         */
+        boolean computeSequencingStatistics = false
+        /**
+         * The maximal number of files that are processed concurrently by the optional stages.
+         * A sequencing summary is only split into this many chunks if the measurements are not
+         * already read in parallel.
+         */
+        int parallelism = Runtime.getRuntime().availableProcessors()
+        /**
+         * Only reports the hidden files and folders that would be deleted after a successful validation
+         */
+        boolean dryRunHiddenFileCleanup = false
+        /**
+         * Keeps the validated structure including the metadata as {@link DatasetSnapshot}
+         */
+        boolean createSnapshot = false
+        /**
+         * Runs the metadata reads of the measurements. If none is provided and the experiment has
+         * more than one measurement, a pool of {@link #parallelism} threads is used for the stage.
+         * A provided executor is not shut down by the parser.
+         */
+        ExecutorService metadataExecutor = null
+        /**
+         * The deadline, cancellation and progress listener of the parse. The directory walk and the
+         * metadata file reads check them, the scan mode is not used for Nanopore experiments.
+         */
+        ParseOptions parseOptions = new ParseOptions()
+    }
 
-    private static Set<File> hiddenFiles = new HashSet<>()
     /**
      * Generates a map representing the folder structure, if it is a correct structure
-     * Deletes any hidden files, if the structure fits one of the Nanopore models
+     * Deletes any hidden files in the background, if the structure fits one of the Nanopore models
      * @param directory path of directory whose fileTree should be converted into map
      */
     static OxfordNanoporeExperiment parseFileStructure(Path directory) {
+        return parse(directory, new Options()).experiment
+    }
+
+    /**
+     * Parses the folder structure like {@link #parseFileStructure(Path)}. The Nanopore schema is not
+     * validated with the everit JSON schema library, so validation failures are reported as
+     * {@link DataParserException} as well.
+     *
+     * {@InheritDoc}
+     * @since 1.19.0
+     */
+    @Override
+    OxfordNanoporeExperiment parseFrom(Path root) throws DataParserException, DatasetValidationException {
+        return parseFrom(root, new ParseOptions())
+    }
+
+    /**
+     * Parses the folder structure like {@link #parseFrom(Path)} with the deadline, cancellation and
+     * progress listener of the provided options.
+     * @param root The root path of the dataset structure
+     * @param options the options of this parse
+     * @return A successfully parsed and validated dataset
+     * @throws DataParserException if the dataset cannot be parsed or validated
+     * @throws life.qbic.datasets.parsers.ParseTimeoutException if the deadline of the options passed
+     * @throws life.qbic.datasets.parsers.ParseCancelledException if the parse was cancelled
+     * @since 1.19.0
+     */
+    OxfordNanoporeExperiment parseFrom(Path root, ParseOptions options) throws DataParserException, DatasetValidationException {
+        try {
+            return parse(root, new Options(parseOptions: options)).experiment
+        } catch (DataParserException parserException) {
+            throw parserException
+        } catch (ValidationException validationException) {
+            throw new DataParserException(validationException.message, validationException)
+        } catch (Exception e) {
+            throw new DataParserException(e.message, e)
+        }
+    }
+
+    /**
+     * Parses the folder structure like {@link #parseFileStructure(Path)} and runs the optional stages
+     * enabled in the provided options.
+     * @param directory path of directory whose fileTree should be converted into map
+     * @param options the optional stages to run after a successful validation
+     * @return the parsed experiment together with the results of the optional stages, the
+     * deletion of hidden files might still be running
+     * @since 1.19.0
+     */
+    static NanoporeParseResult parse(Path directory, Options options) {
         // Step1: convert directory to json
-        Map convertedDirectory = DirectoryConverter.fileTreeToMap(directory)
+        Set<Path> hiddenFiles = new LinkedHashSet<>()
+        Map convertedDirectory = DirectoryConverter.fileTreeToMap(directory, hiddenFiles, options.parseOptions)
 
         String json = mapToJson(convertedDirectory)
         // Step2: Validate created Json against schema
         validateJson(json)
         //Step3: convert valid json to OxfordNanoporeExperiment Object
         // Step4: Parse meta data out of report files and extend the map
-        def finalMap = parseMetaData(convertedDirectory, directory)
+        def finalMap = parseMetaData(convertedDirectory, directory, options)
         // Step5: Create the final OxfordNanoporeExperiment from the map
         OxfordNanoporeExperiment convertedExperiment = OxfordNanoporeExperiment.create(finalMap)
-        // Step6: This is a valid experiment, we can now delete the hidden files
-        for (File hiddenFile : hiddenFiles) {
-            deleteFile(hiddenFile)
+        SampleIdIndexing.indexNodeNames(directory, finalMap, options.parseOptions)
+        // Step6: Run the optional counting stage over the fastq files of each measurement
+        Map<String, Map<String, FastqReadCounter.ReadCount>> readCounts = [:]
+        if (options.countFastqReads) {
+            readCounts = countFastqReads(finalMap, directory, options.parallelism, options.parseOptions)
+        }
+        // Step7: This is a valid experiment, we can now delete the hidden files without waiting for it
+        CompletableFuture<HiddenFileCleanup.Report> cleanup = HiddenFileCleanup.deleteAsync(hiddenFiles,
+                options.dryRunHiddenFileCleanup, options.parallelism)
+        cleanup.thenAccept { HiddenFileCleanup.Report report ->
+            report.failures.each { Path path, IOException failure ->
+                log.warn("Could not delete hidden file ${path}: ${failure.message}")
+            }
+        }
+        DatasetSnapshot snapshot = options.createSnapshot
+                ? new DatasetSnapshot(DatasetSnapshot.DatasetType.OXFORD_NANOPORE_EXPERIMENT, finalMap)
+                : null
+        return new NanoporeParseResult(convertedExperiment, readCounts, cleanup, snapshot)
+    }
+
+    /**
+     * Counts reads and bases of the fastq.gz files in the fastq_pass and fastq_fail folders of
+     * every measurement. Files in barcode folders are counted per barcode folder, files located
+     * directly in a fastq folder are counted for the fastq folder itself.
+     * @return the counts per measurement name and folder path relative to the measurement
+     */
+    private static Map<String, Map<String, FastqReadCounter.ReadCount>> countFastqReads(Map convertedDirectory, Path root, int parallelism,
+                                                                                        ParseOptions parseOptions) {
+        Map<String, Map<String, FastqReadCounter.ReadCount>> readCounts = [:]
+        convertedDirectory.get("children").each { measurement ->
+            parseOptions.checkpoint()
+            Map<String, List<Path>> filesPerFolder = new LinkedHashMap<>()
+            collectFastqFiles(measurement as Map, measurement["path"] as String, root, filesPerFolder)
+            readCounts[measurement["name"] as String] = FastqReadCounter.countReads(filesPerFolder, parallelism, parseOptions)
         }
-        return convertedExperiment
+        return readCounts
     }
 
-    private static void deleteFile(File file) {
-        if (file.isDirectory()) {
-            for (File child : file.listFiles()) {
-                deleteFile(child)
+    private static void collectFastqFiles(Map directory, String measurementPath, Path root, Map<String, List<Path>> filesPerFolder) {
+        directory["children"].each { child ->
+            if (!child.containsKey("children")) {
+                return
+            }
+            if (FASTQ_FOLDER_NAMES.contains(child["name"])) {
+                addFastqFiles(child as Map, measurementPath, root, filesPerFolder)
+                child["children"].findAll { it.containsKey("children") }.each { barcodeFolder ->
+                    addFastqFiles(barcodeFolder as Map, measurementPath, root, filesPerFolder)
+                }
+            } else {
+                collectFastqFiles(child as Map, measurementPath, root, filesPerFolder)
             }
         }
-        file.delete()
+    }
+
+    private static void addFastqFiles(Map folder, String measurementPath, Path root, Map<String, List<Path>> filesPerFolder) {
+        List<Path> fastqFiles = folder["children"]
+                .findAll { it["file_type"] == "fastq.gz" }
+                .collect { root.resolve(it["path"].toString()) }
+        if (fastqFiles) {
+            String folderPath = (folder["path"] as String).substring(measurementPath.length() + 1)
+            filesPerFolder[folderPath] = fastqFiles
+        }
     }
 
     /**
@@ -59,27 +216,136 @@ class NanoporeParser {
      * the report markdown file and final summary file.
      * The parsed metadata properties are summarized as key value pairs under an new map
      * key "metadata".
+     * If enabled in the options and the measurement contains a sequencing summary, its read statistics
+     * are added to the metadata under the key "sequencing_summary_statistics". The statistics are left
+     * out if the summary cannot be read, since the measurement is valid without them.
+     *
+     * The files of the measurements are read concurrently. The metadata is added to the
+     * measurements afterwards in their original order, so the map is the same as if the
+     * measurements were read one after another.
+     * @throws MeasurementMetadataException listing every measurement whose metadata could not be parsed
      */
-    private static Map parseMetaData(Map convertedDirectory, Path root) {
-        convertedDirectory.get("children").each { measurement ->
+    private static Map parseMetaData(Map convertedDirectory, Path root, Options options) {
+        ParseOptions parseOptions = options.parseOptions
+        List<Map> measurements = convertedDirectory.get("children").collect { it as Map }
+        // a summary is only split into parallel chunks if the measurements are not already read in parallel
+        int statisticsParallelism = runsInPool(measurements.size(), options) ? 1 : options.parallelism
+        List<Callable<Map>> tasks = measurements.collect { Map measurement ->
+            parseOptions.checkpoint()
+            // the walked structure is only read here, on the calling thread
             def reportFile = measurement["children"].find { it["name"].contains("report") && it["file_type"] == "md" }
             def summaryFile = measurement["children"].find { it["name"].contains("final_summary") && it["file_type"] == "txt" }
-            def metadata = readMetaData(reportFile as Map, summaryFile as Map, root)
-            Map finalMetadata = finalizeMetadata(metadata)
-            measurement["metadata"] = finalMetadata
+            def sequencingSummaryFile = measurement["children"].find { it["name"].contains("sequencing_summary") && it["file_type"] == "txt" }
+            String reportPath = reportFile?.get("path")?.toString()
+            String summaryPath = summaryFile?.get("path")?.toString()
+            String sequencingSummaryPath = sequencingSummaryFile?.get("path")?.toString()
+            return { ->
+                parseOptions.checkpoint()
+                def metadata = readMetaData(reportPath, summaryPath, root)
+                Map finalMetadata = finalizeMetadata(metadata)
+                if (options.computeSequencingStatistics && sequencingSummaryPath) {
+                    parseOptions.checkpoint()
+                    Map statistics = readSequencingStatistics(sequencingSummaryPath, root, statisticsParallelism, parseOptions)
+                    if (statistics != null) {
+                        finalMetadata["sequencing_summary_statistics"] = statistics
+                    }
+                }
+                return finalMetadata
+            } as Callable<Map>
+        }
+        List<Object> outcomes = runMetadataTasks(tasks, options)
+        Map<String, Throwable> failures = new LinkedHashMap<>()
+        outcomes.eachWithIndex { Object outcome, int i ->
+            if (outcome instanceof Throwable) {
+                failures[measurements[i]["name"] as String] = outcome as Throwable
+            }
+        }
+        // a cancelled or timed out parse is not a problem of single measurements
+        Throwable interruption = failures.values().find { it instanceof ParseCancelledException || it instanceof ParseTimeoutException }
+        if (interruption) {
+            throw interruption
+        }
+        if (failures) {
+            throw new MeasurementMetadataException(failures)
+        }
+        measurements.eachWithIndex { Map measurement, int i ->
+            measurement["metadata"] = outcomes[i]
         }
         return convertedDirectory
     }
 
+    /*
+     * Runs all tasks and returns the result or the failure of every task in the order of the tasks
+     */
+    private static List<Object> runMetadataTasks(List<Callable<Map>> tasks, Options options) {
+        if (!runsInPool(tasks.size(), options)) {
+            return tasks.collect { Callable<Map> task -> runMetadataTask(task) }
+        }
+        ExecutorService executor = options.metadataExecutor
+        boolean ownExecutor = false
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.min(options.parallelism, tasks.size()))
+            ownExecutor = true
+        }
+        try {
+            List<Future<Map>> futures = tasks.collect { Callable<Map> task -> executor.submit(task) }
+            return futures.collect { Future<Map> future -> awaitMetadata(future) }
+        } finally {
+            if (ownExecutor) {
+                executor.shutdownNow()
+            }
+        }
+    }
+
+    private static boolean runsInPool(int taskCount, Options options) {
+        return options.metadataExecutor != null || (taskCount > 1 && options.parallelism > 1)
+    }
+
+    private static Object runMetadataTask(Callable<Map> task) {
+        try {
+            return task.call()
+        } catch (Exception e) {
+            return e
+        }
+    }
+
+    private static Object awaitMetadata(Future<Map> future) {
+        try {
+            return future.get()
+        } catch (ExecutionException e) {
+            return e.getCause()
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt()
+            throw new ParseCancelledException("The parsing thread was interrupted")
+        }
+    }
+
+    /**
+     * The sequencing summary lists every read of the measurement. It is parsed in a single pass
+     * and summarized into read counts, yields and the N50.
+     * @param parallelism the number of chunks read concurrently, 1 if the measurements are
+     * already read by a pool
+     * @return the statistics or null if the summary cannot be read
+     * @see SequencingSummaryStatistics
+     */
+    private static Map readSequencingStatistics(String sequencingSummaryPath, Path root, int parallelism,
+                                                ParseOptions parseOptions) {
+        Path summaryPath = root.resolve(sequencingSummaryPath)
+        try {
+            return SequencingSummaryStatistics.compute(summaryPath, parallelism, parseOptions).toMap()
+        } catch (IOException e) {
+            log.warn("Could not compute the read statistics of ${sequencingSummaryPath}: ${e.message}")
+            return null
+        }
+    }
+
     /**
      * The metadata contained in the report markdown is notated as an embedded JSON object in the header of the file.
      * The additional metadata contained in the final summary is a line-separated list of
      * key=value pairs.
      */
-    private static Map readMetaData(Map<String, String> reportFile, Map<String, String> summaryFile, Path root) {
-        def report = new File(Paths.get(root.toString(), reportFile["path"].toString()) as String)
-                .readLines()
-                .iterator()
+    private static Map readMetaData(String reportPath, String summaryPath, Path root) {
+        def report = readLines(root.resolve(reportPath)).iterator()
         def buffer = new StringBuffer()
         def jsonSlurper = new JsonSlurper()
         def jsonStarted = false
@@ -95,7 +361,7 @@ class NanoporeParser {
             if (jsonStarted) {
                 def split = line.replaceAll("\\s+", "").split(":")
                 if (split.size() == 2 && split[1].replaceAll('"', "").size() <= 1) {
-                    log.info("Metadata value ${split[0]} missing in ${reportFile["path"]}")
+                    log.info("Metadata value ${split[0]} missing in ${reportPath}")
                 }
                 buffer.append(line)
             }
@@ -105,19 +371,25 @@ class NanoporeParser {
         }
 
         def finalMetaData = (Map) jsonSlurper.parseText(buffer.toString())
-        new File(Paths.get(root.toString(), summaryFile["path"].toString()) as String)
-                .readLines().each { line ->
+        readLines(root.resolve(summaryPath)).each { line ->
             def split = line.split("=")
             if (split.size() > 1) {
                 finalMetaData[split[0]] = split[1]
             } else {
-                log.info("Metadata value ${split[0]} missing in ${summaryFile["path"]}, defaulting to empty value")
+                log.info("Metadata value ${split[0]} missing in ${summaryPath}, defaulting to empty value")
                 finalMetaData[split[0]] = ""
             }
         }
         return finalMetaData
     }
 
+    /*
+     * Reads with the default charset like File.readLines, but works for paths of any file system
+     */
+    private static List<String> readLines(Path file) {
+        return Files.newInputStream(file).withReader { Reader reader -> reader.readLines() }
+    }
+
     /**
      * The base caller and flow cell position entries are not nicely stored in the metadata.
      * We refactor them to the properties, the data model OxfordNanoporeExperiment expects.
@@ -203,23 +475,30 @@ class NanoporeParser {
         /**
          *
          * @param path a path to the directory which will be used as root for parsing
-         * @return a Map describing the file tree starting from the given path
+         * @param hiddenFiles collects the hidden files and folders that are left out of the structure
+         * @param parseOptions the deadline, cancellation and progress listener of the walk
+         * @return a Map view of the compact file tree starting from the given path
          */
-        static Map fileTreeToMap(Path path) {
-            File rootLocation = new File(path.toString())
-            if (rootLocation.isFile()) {
+        static Map fileTreeToMap(Path path, Set<Path> hiddenFiles, ParseOptions parseOptions) {
+            if (Files.isRegularFile(path)) {
                 throw new NotDirectoryException("Expected a directory. Got a file instead.")
-            } else if (rootLocation.isDirectory()) {
+            } else if (Files.isDirectory(path)) {
                 //Check if existing Directory is empty
-                if (rootLocation.list().length > 0) {
+                if (hasEntries(path)) {
                     // Recursive conversion
-                    Map folderStructure = convertDirectory(rootLocation.toPath())
-                    return convertToRelativePaths(folderStructure, rootLocation.toPath())
+                    CompactFileTree fileTree = new CompactFileTree.Builder(path)
+                            .fileTypeKey("file_type")
+                            .relativePathPrefix("")
+                            .fileTypeResolver({ String fileName -> determineFileType(fileName) } as Function<String, String>)
+                            .entryFilter({ Path entry, Boolean isDirectory -> acceptEntry(entry, hiddenFiles) } as BiPredicate<Path, Boolean>)
+                            .parseOptions(parseOptions)
+                            .build()
+                    return fileTree.asMap()
                 } else {
                     throw new ParseException("Parsed directory might not be empty", -1)
                 }
             } else {
-                if (!rootLocation.exists()) {
+                if (!Files.exists(path)) {
                     throw new FileNotFoundException("The given path does not exist.")
                 } else {
                     throw new IOException()
@@ -229,87 +508,31 @@ class NanoporeParser {
         }
 
         /**
-         * Convert a directory structure to a map, following the Nanopore schema.
-         * Ignores hidden files in the structure and adds them to a global set to be
+         * Decides whether a file or directory is part of the converted structure, following the Nanopore schema.
+         * Ignores hidden files in the structure and adds them to the set of the current parse to be
          * dealt with later.
-         * @param a path to the current location in recursion
-         * @return a map representing a directory with name, path and children as keys
+         * @param entry a path to the current location in the walk
+         * @param hiddenFiles the hidden files found so far
+         * @return true if the entry is neither hidden nor one of the ignored folders
          */
-        private static Map convertDirectory(Path path) {
-            // convert to File object
-            File currentDirectory = new File(path.toString())
-            String name = currentDirectory.getName()
-            if (IGNORED_FOLDERNAMES.contains(name)) {
-                return null
-            }
-            List<File> children = currentDirectory.listFiles()
-
-            List<File> visibleChildren = children.stream()
-                    .filter(file -> !file.isHidden()).collect(Collectors.toList())
-
-            for (File file : children) {
-                if (!visibleChildren.contains(file)) {
-                    hiddenFiles.add(file)
-                }
-            }
-
-            visibleChildren = visibleChildren.findAll { file ->
-                String currentFolderName = file.getName()
-                return !IGNORED_FOLDERNAMES.contains(currentFolderName)
-            }.collect {
-                file ->
-                    if (file.isFile()) {
-                        convertFile(file.toPath())
-                    } else if (file.isDirectory()) {
-                        convertDirectory(file.toPath())
-                    }
+        private static boolean acceptEntry(Path entry, Set<Path> hiddenFiles) {
+            if (Files.isHidden(entry)) {
+                hiddenFiles.add(entry)
+                return false
             }
-
-            def convertedDirectory = [
-                    "name"    : name,
-                    "path"    : path,
-                    "children": visibleChildren
-            ]
-
-            return convertedDirectory
-        }
-
-        private static Map convertToRelativePaths(Map content, Path root) {
-            content["path"] = toRelativePath(content["path"] as String, root)
-            if (content["children"]) {
-                // Children always contains a map, so convert recursively
-                content["children"] = (content["children"] as List).collect { convertToRelativePaths(it as Map, root) }
-            }
-            return content
-
+            return !IGNORED_FOLDERNAMES.contains(DirectoryListing.fileName(entry))
         }
 
-        private static String toRelativePath(String path, Path root) {
-            if (root.toString().equals(path)) {
-                return "./"
-            } else {
-                return path.replace("${root.toString()}/", "")
-            }
-        }
-
-        /**
-         * File to JSON converter
-         * @param a path to the current file in recursion
-         * @return a map representing the file with name, path and file_type as keys
+        /*
+         * Only checks for a first entry instead of listing the whole directory
          */
-        private static Map convertFile(Path path) {
-            // convert to File object
-            File currentFile = new File(path.toString())
-            String name = currentFile.getName()
-            String fileType = determineFileType(name)
-
-
-            def convertedFile = [
-                    "name"     : name,
-                    "path"     : path,
-                    "file_type": fileType
-            ]
-            return convertedFile
+        private static boolean hasEntries(Path directory) {
+            DirectoryStream<Path> entries = Files.newDirectoryStream(directory)
+            try {
+                return entries.iterator().hasNext()
+            } finally {
+                entries.close()
+            }
         }
 
         /**
@@ -0,0 +1,49 @@
+package life.qbic.utils
+
+import life.qbic.datasets.parsers.DatasetParser
+import life.qbic.datasets.parsers.DatasetParserProvider
+import life.qbic.datasets.parsers.DirectoryListing
+
+/**
+ * Detects Oxford Nanopore experiments by a measurement folder that contains the report and
+ * the final summary of the run.
+ *
+ * @since 1.19.0
+ */
+class NanoporeParserProvider implements DatasetParserProvider {
+
+    /**
+     * Only this many measurement folders are inspected, a match is usually found in the first one
+     */
+    private static final int MAX_INSPECTED_MEASUREMENTS = 8
+
+    /** {@InheritDoc} */
+    @Override
+    String getDatasetType() {
+        return "Oxford Nanopore experiment"
+    }
+
+    /** {@InheritDoc} */
+    @Override
+    boolean matches(DirectoryListing rootListing) throws IOException {
+        int inspected = 0
+        for (String measurementName : rootListing.directoryNames) {
+            if (inspected == MAX_INSPECTED_MEASUREMENTS) {
+                return false
+            }
+            DirectoryListing measurement = rootListing.subdirectory(measurementName)
+            if (measurement.hasFileMatching { String name -> name.contains("report") }
+                    && measurement.hasFileMatching { String name -> name.contains("final_summary") }) {
+                return true
+            }
+            inspected++
+        }
+        return false
+    }
+
+    /** {@InheritDoc} */
+    @Override
+    DatasetParser<?> createParser() {
+        return new NanoporeParser()
+    }
+}
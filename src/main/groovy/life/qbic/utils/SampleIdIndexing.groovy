@@ -0,0 +1,82 @@
+package life.qbic.utils
+
+import groovy.util.logging.Log4j2
+import life.qbic.datasets.index.SampleIdIndex
+import life.qbic.datasets.parsers.ParseOptions
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Adds the sample codes of a successfully parsed dataset to the {@link SampleIdIndex} of the parse options.
+ *
+ * <p>A dataset is valid whether or not its sample codes could be indexed, so a failing index only
+ * results in a warning.</p>
+ *
+ * @since 1.19.0
+ */
+@Log4j2
+class SampleIdIndexing {
+
+    /**
+     * Indexes the sample codes listed in the sample id file of a dataset
+     * @param root the root path of the dataset
+     * @param sampleIdFile the node of the sample id file in the parsed file tree, may be null
+     * @param options the options of the parse
+     * @since 1.19.0
+     */
+    static void indexSampleIdFile(Path root, Map sampleIdFile, ParseOptions options) {
+        SampleIdIndex index = options.getSampleIdIndex()
+        if (index == null) {
+            return
+        }
+        Map<String, Set<String>> sampleCodesPerFile = [:]
+        try {
+            if (sampleIdFile != null) {
+                String relativePath = sampleIdFile.get("path")
+                String content = new String(Files.readAllBytes(root.resolve(relativePath)), StandardCharsets.UTF_8)
+                sampleCodesPerFile.put(relativePath, SampleIdIndex.findSampleCodes(content))
+            }
+            index.indexDataset(root, sampleCodesPerFile)
+        } catch (IOException e) {
+            log.warn("Could not index the sample codes of ${root}: ${e.message}")
+        }
+    }
+
+    /**
+     * Indexes the sample codes contained in the names of the files and folders of a dataset
+     * @param root the root path of the dataset
+     * @param fileTree the parsed file tree of the dataset
+     * @param options the options of the parse
+     * @since 1.19.0
+     */
+    static void indexNodeNames(Path root, Map fileTree, ParseOptions options) {
+        SampleIdIndex index = options.getSampleIdIndex()
+        if (index == null) {
+            return
+        }
+        Map<String, Set<String>> sampleCodesPerFile = [:]
+        collectNodeNames(fileTree, sampleCodesPerFile)
+        try {
+            index.indexDataset(root, sampleCodesPerFile)
+        } catch (IOException e) {
+            log.warn("Could not index the sample codes of ${root}: ${e.message}")
+        }
+    }
+
+    private static void collectNodeNames(Map node, Map<String, Set<String>> sampleCodesPerFile) {
+        String name = node.get("name")
+        if (name != null) {
+            Set<String> sampleCodes = SampleIdIndex.findSampleCodes(name)
+            if (!sampleCodes.isEmpty()) {
+                sampleCodesPerFile.put(node.get("path") as String, sampleCodes)
+            }
+        }
+        node.get("children")?.each { child ->
+            if (child instanceof Map) {
+                collectNodeNames(child as Map, sampleCodesPerFile)
+            }
+        }
+    }
+}
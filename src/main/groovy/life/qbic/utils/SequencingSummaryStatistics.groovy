@@ -0,0 +1,572 @@
+package life.qbic.utils
+
+import groovy.transform.CompileStatic
+import groovy.transform.PackageScope
+import life.qbic.datasets.parsers.ParseCancelledException
+import life.qbic.datasets.parsers.ParseOptions
+
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.channels.ReadableByteChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * <h1>Read statistics of a Nanopore sequencing summary file</h1>
+ * <br>
+ * <p>Computes read counts, the pass/fail ratio, total bases, the N50 and the per-barcode yield
+ * of a <code>sequencing_summary_*.txt</code> file in a single pass over its content.</p>
+ *
+ * <p>Large files are split into chunks at line boundaries which are processed in parallel.
+ * Every chunk only uses primitive counters and a read length histogram, so no objects are
+ * created per read apart from new barcode names.</p>
+ *
+ * <p>Files on file systems that do not provide file channels, e.g. archive file systems,
+ * are read sequentially as a stream.</p>
+ *
+ * <p>The deadline and cancellation of the {@link ParseOptions} are checked for every buffer of
+ * one MiB, so reading a large summary from slow storage can be stopped in between.</p>
+ *
+ * @since 1.19.0
+ */
+@CompileStatic
+class SequencingSummaryStatistics {
+
+    /**
+     * Read lengths below this limit are counted in a histogram, longer reads are kept in a list
+     */
+    private static final int HISTOGRAM_SIZE = 1 << 16
+
+    /**
+     * Files smaller than this are not split into several chunks
+     */
+    private static final long MIN_CHUNK_SIZE = 8L * 1024 * 1024
+
+    private static final int BUFFER_SIZE = 1 << 20
+
+    private static final int TAB = 9
+    private static final int NEWLINE = 10
+    private static final int CARRIAGE_RETURN = 13
+
+    private static final String PASSES_FILTERING_COLUMN = "passes_filtering"
+    private static final String SEQUENCE_LENGTH_COLUMN = "sequence_length_template"
+    private static final String BARCODE_COLUMN = "barcode_arrangement"
+
+    final long readCount
+    final long passedReadCount
+    final long failedReadCount
+    final long totalBases
+    final long passedBases
+    final long failedBases
+    final long longestRead
+    final long n50
+    final Map<String, BarcodeYield> barcodeYields
+
+    private SequencingSummaryStatistics(Accumulator accumulator) {
+        this.readCount = accumulator.readCount
+        this.passedReadCount = accumulator.passedReadCount
+        this.failedReadCount = accumulator.readCount - accumulator.passedReadCount
+        this.totalBases = accumulator.totalBases
+        this.passedBases = accumulator.passedBases
+        this.failedBases = accumulator.totalBases - accumulator.passedBases
+        this.longestRead = accumulator.longestRead
+        this.n50 = accumulator.computeN50()
+        Map<String, BarcodeYield> yields = new TreeMap<>()
+        accumulator.barcodes.each { String barcode, long[] counts ->
+            yields.put(barcode, new BarcodeYield(counts[0], counts[1]))
+        }
+        this.barcodeYields = Collections.unmodifiableMap(yields)
+    }
+
+    /**
+     * Computes the statistics of a sequencing summary file using all available processors
+     * @param summaryFile the path to the sequencing summary file
+     * @return the statistics of all reads listed in the file
+     * @throws IOException if the file cannot be read
+     * @since 1.19.0
+     */
+    static SequencingSummaryStatistics compute(Path summaryFile) throws IOException {
+        return compute(summaryFile, Runtime.getRuntime().availableProcessors())
+    }
+
+    /**
+     * Computes the statistics of a sequencing summary file
+     * @param summaryFile the path to the sequencing summary file
+     * @param parallelism the maximal number of chunks that are processed concurrently
+     * @return the statistics of all reads listed in the file
+     * @throws IOException if the file cannot be read
+     * @since 1.19.0
+     */
+    static SequencingSummaryStatistics compute(Path summaryFile, int parallelism) throws IOException {
+        return compute(summaryFile, parallelism, new ParseOptions())
+    }
+
+    /**
+     * Computes the statistics of a sequencing summary file
+     * @param summaryFile the path to the sequencing summary file
+     * @param parallelism the maximal number of chunks that are processed concurrently
+     * @param options provide the deadline and cancellation that are checked while the file is read
+     * @return the statistics of all reads listed in the file
+     * @throws IOException if the file cannot be read
+     * @throws life.qbic.datasets.parsers.ParseTimeoutException if the deadline of the options passed
+     * @throws ParseCancelledException if the parse was cancelled
+     * @since 1.19.0
+     */
+    static SequencingSummaryStatistics compute(Path summaryFile, int parallelism, ParseOptions options) throws IOException {
+        return compute(summaryFile, parallelism, MIN_CHUNK_SIZE, options)
+    }
+
+    @PackageScope
+    static SequencingSummaryStatistics compute(Path summaryFile, int parallelism, long minChunkSize) throws IOException {
+        return compute(summaryFile, parallelism, minChunkSize, new ParseOptions())
+    }
+
+    private static SequencingSummaryStatistics compute(Path summaryFile, int parallelism, long minChunkSize,
+                                                       ParseOptions options) throws IOException {
+        options.checkpoint()
+        FileChannel channel
+        try {
+            channel = FileChannel.open(summaryFile, StandardOpenOption.READ)
+        } catch (UnsupportedOperationException ignored) {
+            return computeSequentially(summaryFile, options)
+        }
+        try {
+            long size = channel.size()
+            Header header = Header.read(new BufferedInputStream(Channels.newInputStream(new ChannelSlice(channel, 0)), 8192))
+            if (header == null) {
+                return new SequencingSummaryStatistics(new Accumulator())
+            }
+            List<ChunkParser> chunks = splitIntoChunks(channel, header, size, parallelism, minChunkSize, options)
+            Accumulator result = chunks.size() == 1 ? chunks.get(0).call() : parseInParallel(chunks)
+            return new SequencingSummaryStatistics(result)
+        } finally {
+            channel.close()
+        }
+    }
+
+    private static SequencingSummaryStatistics computeSequentially(Path summaryFile, ParseOptions options) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(summaryFile), BUFFER_SIZE)
+        try {
+            Header header = Header.read(input)
+            if (header == null) {
+                return new SequencingSummaryStatistics(new Accumulator())
+            }
+            // the stream is positioned at the first record after reading the header
+            ChunkParser parser = new ChunkParser(Channels.newChannel(input), header, header.dataStart, Long.MAX_VALUE, options)
+            return new SequencingSummaryStatistics(parser.call())
+        } finally {
+            input.close()
+        }
+    }
+
+    private static List<ChunkParser> splitIntoChunks(FileChannel channel, Header header, long size, int parallelism, long minChunkSize,
+                                                     ParseOptions options) {
+        long dataSize = size - header.dataStart
+        long chunkCount = Math.max(1L, Math.min((long) parallelism, Math.floorDiv(dataSize, minChunkSize)))
+        long chunkSize = Math.floorDiv(dataSize, chunkCount)
+        List<ChunkParser> chunks = []
+        for (long i = 0; i < chunkCount; i++) {
+            long start = header.dataStart + i * chunkSize
+            long end = (i == chunkCount - 1) ? size : start + chunkSize
+            long sourcePosition = start > header.dataStart ? start - 1 : start
+            chunks.add(new ChunkParser(new ChannelSlice(channel, sourcePosition), header, start, end, options))
+        }
+        return chunks
+    }
+
+    private static Accumulator parseInParallel(List<ChunkParser> chunks) {
+        ExecutorService executor = Executors.newFixedThreadPool(chunks.size())
+        try {
+            List<Future<Accumulator>> futures = []
+            for (ChunkParser chunk : chunks) {
+                futures.add(executor.submit(chunk))
+            }
+            Accumulator result = new Accumulator()
+            for (Future<Accumulator> future : futures) {
+                try {
+                    result.merge(future.get())
+                } catch (ExecutionException e) {
+                    throw e.getCause()
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt()
+                    throw new ParseCancelledException("The parsing thread was interrupted")
+                }
+            }
+            return result
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    /**
+     * Provides the statistics as key value pairs, following the naming of the Nanopore metadata
+     * @return a map containing the statistics and a map of yields per barcode under the key "barcodes"
+     * @since 1.19.0
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> barcodes = new LinkedHashMap<>()
+        barcodeYields.each { String barcode, BarcodeYield barcodeYield ->
+            barcodes.put(barcode, ["read_count": barcodeYield.readCount, "total_bases": barcodeYield.totalBases])
+        }
+        Map<String, Object> statistics = new LinkedHashMap<>()
+        statistics.put("read_count", readCount)
+        statistics.put("passed_read_count", passedReadCount)
+        statistics.put("failed_read_count", failedReadCount)
+        statistics.put("pass_ratio", getPassRatio())
+        statistics.put("total_bases", totalBases)
+        statistics.put("passed_bases", passedBases)
+        statistics.put("failed_bases", failedBases)
+        statistics.put("longest_read", longestRead)
+        statistics.put("n50", n50)
+        statistics.put("barcodes", barcodes)
+        return statistics
+    }
+
+    /**
+     * Fraction of reads that passed filtering, 0 if the file does not list any reads
+     * @return the pass ratio in the range [0, 1]
+     * @since 1.19.0
+     */
+    double getPassRatio() {
+        return readCount == 0 ? 0d : (double) passedReadCount / (double) readCount
+    }
+
+    /**
+     * Number of reads and bases that were assigned to one barcode
+     *
+     * @since 1.19.0
+     */
+    @CompileStatic
+    static class BarcodeYield {
+        final long readCount
+        final long totalBases
+
+        BarcodeYield(long readCount, long totalBases) {
+            this.readCount = readCount
+            this.totalBases = totalBases
+        }
+    }
+
+    /**
+     * Column positions of the header line and the offset at which the read records start
+     */
+    @CompileStatic
+    private static class Header {
+        int passesFilteringColumn
+        int sequenceLengthColumn
+        int barcodeColumn
+        int lastRequiredColumn
+        long dataStart
+
+        /**
+         * Reads the header line of the file, the input is consumed up to and including the line break
+         * @return the header or null if the file is empty
+         */
+        static Header read(InputStream input) {
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream()
+            long position = 0
+            int value
+            while ((value = input.read()) != -1) {
+                position++
+                if (value == NEWLINE) {
+                    break
+                }
+                if (value != CARRIAGE_RETURN) {
+                    headerBytes.write(value)
+                }
+            }
+            if (headerBytes.size() == 0) {
+                return null
+            }
+            List<String> columns = Arrays.asList(new String(headerBytes.toByteArray(), StandardCharsets.US_ASCII).split("\t"))
+            Header header = new Header()
+            header.passesFilteringColumn = columns.indexOf(PASSES_FILTERING_COLUMN)
+            header.sequenceLengthColumn = columns.indexOf(SEQUENCE_LENGTH_COLUMN)
+            header.barcodeColumn = columns.indexOf(BARCODE_COLUMN)
+            if (header.sequenceLengthColumn < 0) {
+                throw new IOException("Sequencing summary is missing the column '${SEQUENCE_LENGTH_COLUMN}'")
+            }
+            header.lastRequiredColumn = [header.passesFilteringColumn, header.sequenceLengthColumn, header.barcodeColumn].max()
+            header.dataStart = position
+            return header
+        }
+    }
+
+    /**
+     * Sequential view on a file channel from a given position on, using positional reads
+     * so that several views can share the same channel
+     */
+    @CompileStatic
+    private static class ChannelSlice implements ReadableByteChannel {
+        private final FileChannel channel
+        private long position
+
+        ChannelSlice(FileChannel channel, long position) {
+            this.channel = channel
+            this.position = position
+        }
+
+        @Override
+        int read(ByteBuffer destination) throws IOException {
+            int read = channel.read(destination, position)
+            if (read > 0) {
+                position += read
+            }
+            return read
+        }
+
+        @Override
+        boolean isOpen() {
+            return channel.isOpen()
+        }
+
+        @Override
+        void close() {
+            // the shared channel is closed once all chunks are parsed
+        }
+    }
+
+    /**
+     * Parses all lines that start within [start, end) of the file.
+     * The source has to be positioned at start, or one byte before start if the chunk does not
+     * begin with the first record.
+     */
+    @CompileStatic
+    private static class ChunkParser implements Callable<Accumulator> {
+        private final ReadableByteChannel source
+        private final Header header
+        private final long start
+        private final long end
+        private final ParseOptions options
+
+        ChunkParser(ReadableByteChannel source, Header header, long start, long end, ParseOptions options) {
+            this.source = source
+            this.header = header
+            this.start = start
+            this.end = end
+            this.options = options
+        }
+
+        @Override
+        Accumulator call() throws IOException {
+            Accumulator accumulator = new Accumulator()
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE)
+            byte[] bytes = buffer.array()
+            byte[] barcode = new byte[64]
+            // a chunk that does not start at the first record skips the line it starts in,
+            // that line belongs to the previous chunk
+            boolean skipping = start > header.dataStart
+            long position = skipping ? start - 1 : start
+            long lineStart = position
+
+            int column = 0
+            long length = 0
+            boolean lengthComplete = false
+            boolean passed = header.passesFilteringColumn < 0
+            int barcodeLength = 0
+            boolean lineEmpty = true
+
+            boolean done = false
+            while (!done) {
+                options.checkpoint()
+                buffer.clear()
+                int read = source.read(buffer)
+                if (read < 0) {
+                    break
+                }
+                for (int i = 0; i < read; i++) {
+                    int value = bytes[i] & 0xFF
+                    if (skipping) {
+                        if (value == NEWLINE) {
+                            skipping = false
+                            lineStart = position + i + 1
+                            if (lineStart >= end) {
+                                done = true
+                                break
+                            }
+                        }
+                        continue
+                    }
+                    if (value == NEWLINE) {
+                        if (!lineEmpty && column >= header.lastRequiredColumn) {
+                            accumulator.add(length, passed, barcode, barcodeLength)
+                        }
+                        column = 0
+                        length = 0
+                        lengthComplete = false
+                        passed = header.passesFilteringColumn < 0
+                        barcodeLength = 0
+                        lineEmpty = true
+                        lineStart = position + i + 1
+                        if (lineStart >= end) {
+                            done = true
+                            break
+                        }
+                    } else if (value == TAB) {
+                        column++
+                        lineEmpty = false
+                    } else if (value != CARRIAGE_RETURN) {
+                        lineEmpty = false
+                        if (column == header.sequenceLengthColumn) {
+                            if (!lengthComplete && value >= 48 && value <= 57) {
+                                length = length * 10 + (value - 48)
+                            } else {
+                                lengthComplete = true
+                            }
+                        } else if (column == header.passesFilteringColumn) {
+                            // TRUE, True or 1 mark a passed read, only the first character is relevant
+                            if (value == 84 || value == 116 || value == 49) {
+                                passed = true
+                            }
+                        } else if (column == header.barcodeColumn) {
+                            if (barcodeLength == barcode.length) {
+                                barcode = Arrays.copyOf(barcode, barcode.length * 2)
+                            }
+                            barcode[barcodeLength++] = (byte) value
+                        }
+                    }
+                }
+                position += read
+            }
+            // the last line of the file might not be terminated
+            if (!skipping && !lineEmpty && lineStart < end && column >= header.lastRequiredColumn) {
+                accumulator.add(length, passed, barcode, barcodeLength)
+            }
+            return accumulator
+        }
+    }
+
+    /**
+     * Primitive counters of one chunk
+     */
+    @CompileStatic
+    private static class Accumulator {
+        long readCount
+        long passedReadCount
+        long totalBases
+        long passedBases
+        long longestRead
+        long[] lengthHistogram = new long[HISTOGRAM_SIZE]
+        long[] longReads = new long[16]
+        int longReadCount
+        Map<String, long[]> barcodes = new HashMap<>()
+
+        private byte[] lastBarcode = new byte[0]
+        private long[] lastBarcodeCounts
+
+        void add(long length, boolean passed, byte[] barcode, int barcodeLength) {
+            readCount++
+            totalBases += length
+            if (passed) {
+                passedReadCount++
+                passedBases += length
+            }
+            if (length > longestRead) {
+                longestRead = length
+            }
+            if (length < HISTOGRAM_SIZE) {
+                lengthHistogram[(int) length]++
+            } else {
+                if (longReadCount == longReads.length) {
+                    longReads = Arrays.copyOf(longReads, longReads.length * 2)
+                }
+                longReads[longReadCount++] = length
+            }
+            if (barcodeLength > 0) {
+                long[] counts = countsForBarcode(barcode, barcodeLength)
+                counts[0]++
+                counts[1] += length
+            }
+        }
+
+        /*
+         * Reads are usually grouped by barcode, so the counts of the last barcode are cached
+         * to avoid decoding the barcode name for every read.
+         */
+        private long[] countsForBarcode(byte[] barcode, int barcodeLength) {
+            if (lastBarcodeCounts != null && sameAsLastBarcode(barcode, barcodeLength)) {
+                return lastBarcodeCounts
+            }
+            String name = new String(barcode, 0, barcodeLength, StandardCharsets.US_ASCII)
+            long[] counts = barcodes.get(name)
+            if (counts == null) {
+                counts = new long[2]
+                barcodes.put(name, counts)
+            }
+            lastBarcode = Arrays.copyOf(barcode, barcodeLength)
+            lastBarcodeCounts = counts
+            return counts
+        }
+
+        private boolean sameAsLastBarcode(byte[] barcode, int barcodeLength) {
+            if (lastBarcode.length != barcodeLength) {
+                return false
+            }
+            for (int i = 0; i < barcodeLength; i++) {
+                if (lastBarcode[i] != barcode[i]) {
+                    return false
+                }
+            }
+            return true
+        }
+
+        void merge(Accumulator other) {
+            readCount += other.readCount
+            passedReadCount += other.passedReadCount
+            totalBases += other.totalBases
+            passedBases += other.passedBases
+            longestRead = Math.max(longestRead, other.longestRead)
+            for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+                lengthHistogram[i] += other.lengthHistogram[i]
+            }
+            if (longReadCount + other.longReadCount > longReads.length) {
+                longReads = Arrays.copyOf(longReads, longReadCount + other.longReadCount)
+            }
+            System.arraycopy(other.longReads, 0, longReads, longReadCount, other.longReadCount)
+            longReadCount += other.longReadCount
+            other.barcodes.each { String barcode, long[] counts ->
+                long[] existing = barcodes.get(barcode)
+                if (existing == null) {
+                    barcodes.put(barcode, counts)
+                } else {
+                    existing[0] += counts[0]
+                    existing[1] += counts[1]
+                }
+            }
+        }
+
+        /**
+         * The N50 is the length of the shortest read for which all reads of equal or greater
+         * length together contain at least half of all bases.
+         */
+        long computeN50() {
+            if (totalBases == 0) {
+                return 0
+            }
+            long covered = 0
+            long[] sortedLongReads = Arrays.copyOf(longReads, longReadCount)
+            Arrays.sort(sortedLongReads)
+            for (int i = sortedLongReads.length - 1; i >= 0; i--) {
+                covered += sortedLongReads[i]
+                if (covered * 2 >= totalBases) {
+                    return sortedLongReads[i]
+                }
+            }
+            for (int length = HISTOGRAM_SIZE - 1; length > 0; length--) {
+                covered += lengthHistogram[length] * length
+                if (lengthHistogram[length] > 0 && covered * 2 >= totalBases) {
+                    return length
+                }
+            }
+            return 0
+        }
+    }
+}
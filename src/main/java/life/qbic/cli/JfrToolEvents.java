@@ -0,0 +1,63 @@
+package life.qbic.cli;
+
+/**
+ * Creates and commits the Java Flight Recorder events of the {@link ToolExecutor}.
+ * <p>
+ * The events are passed around as {@link Object} so that classes calling this class can be loaded
+ * on JVMs without the {@code jdk.jfr} module. This class must only be used if
+ * {@link #isAvailable()} returns {@code true}.
+ */
+final class JfrToolEvents {
+
+  private JfrToolEvents() {
+  }
+
+  /**
+   * @return {@code true} if the running JVM provides the Java Flight Recorder API.
+   */
+  static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, JfrToolEvents.class.getClassLoader());
+      return true;
+    } catch (final ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  static Object beginPhase(final String tool, final ToolLifecyclePhase phase) {
+    final ToolLifecycleEvent event = new ToolLifecycleEvent();
+    event.tool = tool;
+    event.phase = phase.name();
+    event.begin();
+    return event;
+  }
+
+  static void endPhase(final Object phaseEvent, final String outcome) {
+    final ToolLifecycleEvent event = (ToolLifecycleEvent) phaseEvent;
+    event.end();
+    if (event.shouldCommit()) {
+      event.outcome = outcome;
+      event.commit();
+    }
+  }
+
+  static Object beginShutdown(final String tool, final String trigger) {
+    final ToolShutdownEvent event = new ToolShutdownEvent();
+    event.tool = tool;
+    event.trigger = trigger;
+    event.begin();
+    return event;
+  }
+
+  static void endShutdown(final Object shutdownEvent, final long lockWaitNanos,
+      final boolean skipped, final String outcome) {
+    final ToolShutdownEvent event = (ToolShutdownEvent) shutdownEvent;
+    event.end();
+    if (event.shouldCommit()) {
+      event.lockWaitTime = lockWaitNanos;
+      event.skipped = skipped;
+      event.outcome = outcome;
+      event.commit();
+    }
+  }
+}
@@ -41,21 +41,38 @@ public class ToolExecutor {
    */
   public <T extends AbstractCommand> void invoke(final Class<? extends QBiCTool<T>> toolClass,
       final Class<T> commandClass, final String[] args) {
-    final AbstractCommand command;
+    final ToolExecutorMonitor monitor = ToolExecutorMonitor.register(toolClass);
+    final Tool tool;
 
+    // once the tool was started the monitor is unregistered by its shutdown, until then by this method
     try {
-      command = validateParametersAndParseCommandlineArguments(toolClass, commandClass, args);
-    } catch (MissingParameterException e) {
-      LOG.error(e.getMessage());
-      CommandLine.usage(AbstractCommand.createDummyCommand(commandClass), System.err);
-      return;
-    }
+      final AbstractCommand command;
+      try {
+        command = monitor.recordPhase(ToolLifecyclePhase.PARSE_ARGUMENTS,
+            () -> validateParametersAndParseCommandlineArguments(toolClass, commandClass, args));
+      } catch (MissingParameterException e) {
+        LOG.error(e.getMessage());
+        CommandLine.usage(AbstractCommand.createDummyCommand(commandClass), System.err);
+        monitor.unregister();
+        return;
+      }
 
-    if (handleCommonParameters(extractToolMetadata(), command)) {
-      return;
+      final ToolMetadata toolMetadata = monitor
+          .recordPhase(ToolLifecyclePhase.EXTRACT_METADATA, this::extractToolMetadata);
+      if (handleCommonParameters(toolMetadata, command)) {
+        monitor.finishedWithoutExecution();
+        monitor.unregister();
+        return;
+      }
+
+      tool = monitor.recordPhase(ToolLifecyclePhase.INSTANTIATE,
+          () -> instantiateTool(toolClass, command));
+    } catch (final RuntimeException | Error e) {
+      monitor.unregister();
+      throw e;
     }
 
-    startQBiCTool(instantiateTool(toolClass, command));
+    startQBiCTool(tool, monitor);
   }
 
   /**
@@ -166,13 +183,14 @@ public class ToolExecutor {
     return new ToolMetadata(toolName, toolVersion, toolRepositoryUrl);
   }
 
-  private void startQBiCTool(final Tool tool) {
+  private void startQBiCTool(final Tool tool, final ToolExecutorMonitor monitor) {
     final Lock shutdownAccessLock = new ReentrantLock();
     final AtomicBoolean cleanShutdown = new AtomicBoolean(false);
     // this is where the "strategy" design pattern pays off; Tool developers need only to implement two methods: execute and shutdown
     Runtime.getRuntime().addShutdownHook(new Thread(() -> {
       try {
-        shutdownHook(tool, shutdownAccessLock, cleanShutdown);
+        shutdownHook(tool, shutdownAccessLock, cleanShutdown, monitor,
+            ToolExecutorMonitor.SHUTDOWN_HOOK);
       } catch (final Exception e) {
         logException(e);
         // calling System.exit while processing shutdown hooks should not be done,
@@ -182,32 +200,57 @@ public class ToolExecutor {
 
     LOG.debug("Starting execution");
     try {
-      tool.execute();
+      execute(tool, monitor.startPhase(ToolLifecyclePhase.EXECUTE));
     } catch (final Exception e) {
       logException(e);
-      shutdownHook(tool, shutdownAccessLock, cleanShutdown);
+      shutdownHook(tool, shutdownAccessLock, cleanShutdown, monitor,
+          ToolExecutorMonitor.ERROR_PATH);
       System.exit(1);
     }
     // do not invoke System.exit
     // let the JVM handle exiting normally, the tool could be a daemon
   }
 
+  private static void execute(final Tool tool, final ToolExecutorMonitor.Phase execution) {
+    Throwable failure = null;
+    try {
+      tool.execute();
+    } catch (final Throwable t) {
+      failure = t;
+      throw t;
+    } finally {
+      // ended here so that errors thrown by the tool are recorded as well
+      if (failure == null) {
+        execution.succeeded();
+      } else {
+        execution.failed(failure);
+      }
+    }
+  }
+
   private void shutdownHook(final Tool tool, final Lock shutdownAccessLock,
-      final AtomicBoolean cleanShutdown) {
+      final AtomicBoolean cleanShutdown, final ToolExecutorMonitor monitor, final String trigger) {
+    final ToolExecutorMonitor.Shutdown shutdown = monitor.startShutdown(trigger);
     shutdownAccessLock.lock();
+    shutdown.lockAcquired();
     try {
       if (!cleanShutdown.get()) {
         LOG.debug("Shutting down");
         tool.shutdown();
         cleanShutdown.set(true);
+        shutdown.succeeded();
       } else {
         LOG.debug("Tool has already been shutdown, ignoring request.");
+        shutdown.skipped();
       }
     } catch (final Exception e) {
       // we are shutting down, just log the exceptions
+      shutdown.failed(e);
       logException(e);
     } finally {
       shutdownAccessLock.unlock();
+      // the tool does not run anymore once it was shut down
+      monitor.unregister();
     }
   }
 
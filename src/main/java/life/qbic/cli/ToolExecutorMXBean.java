@@ -0,0 +1,50 @@
+package life.qbic.cli;
+
+import java.util.Map;
+
+/**
+ * Management interface of a tool invoked by the {@link ToolExecutor}. It is registered with the
+ * platform MBean server under {@code life.qbic.cli:type=ToolExecutor,name="<tool class name>"}, so
+ * running tools and daemons can be inspected with standard JVM tools such as JConsole or VisualVM.
+ */
+public interface ToolExecutorMXBean {
+
+  /**
+   * @return the fully qualified class name of the invoked tool.
+   */
+  String getToolName();
+
+  /**
+   * @return the time since the tool was invoked in milliseconds.
+   */
+  long getUptimeMillis();
+
+  /**
+   * @return the current execution state, e.g. {@code EXECUTING}, {@code EXECUTED},
+   * {@code FAILED}, {@code SHUTTING_DOWN} or {@code SHUT_DOWN}.
+   */
+  String getExecutionState();
+
+  /**
+   * @return the duration of every finished lifecycle phase in milliseconds.
+   */
+  Map<String, Double> getPhaseDurationsMillis();
+
+  /**
+   * @return the duration of the last shutdown in milliseconds, including the time spent waiting for
+   * the shutdown lock, or {@code -1} if the tool was not shut down yet.
+   */
+  double getShutdownLatencyMillis();
+
+  /**
+   * @return the time the last shutdown request waited for the shutdown lock in milliseconds, or
+   * {@code -1} if there was no shutdown request yet.
+   */
+  double getShutdownLockWaitMillis();
+
+  /**
+   * @return the number of shutdown requests. More than one request means that the shutdown hook
+   * and the error path both tried to shut the tool down.
+   */
+  int getShutdownRequestCount();
+}
@@ -0,0 +1,284 @@
+package life.qbic.cli;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps track of the lifecycle of one tool invocation. The durations and outcomes of the phases are
+ * emitted as Java Flight Recorder events if the JVM supports them, and exposed through the
+ * {@link ToolExecutorMXBean} registered with the platform MBean server until the tool was shut
+ * down.
+ */
+final class ToolExecutorMonitor implements ToolExecutorMXBean {
+
+  private static final Logger LOG = LogManager.getLogger(ToolExecutorMonitor.class);
+
+  static final String OBJECT_NAME_PREFIX = "life.qbic.cli:type=ToolExecutor,name=";
+
+  static final String SUCCESS = "success";
+
+  static final String SHUTDOWN_HOOK = "shutdown hook";
+
+  static final String ERROR_PATH = "error path";
+
+  private static final boolean JFR_AVAILABLE = JfrToolEvents.isAvailable();
+
+  /**
+   * The registered monitor per object name, guarded by the class lock.
+   */
+  private static final Map<ObjectName, ToolExecutorMonitor> REGISTERED = new HashMap<>();
+
+  private final String toolName;
+  private ObjectName objectName;
+  private final long startNanos = System.nanoTime();
+  private final Map<String, Double> phaseDurations = Collections
+      .synchronizedMap(new LinkedHashMap<>());
+  private final AtomicInteger shutdownRequests = new AtomicInteger();
+  private volatile String executionState = "STARTING";
+  private volatile long shutdownLatencyNanos = -1;
+  private volatile long shutdownLockWaitNanos = -1;
+
+  private ToolExecutorMonitor(final String toolName) {
+    this.toolName = toolName;
+  }
+
+  /**
+   * Creates a monitor for an invocation and registers it with the platform MBean server. A monitor
+   * registered by an earlier invocation of the same tool class is replaced. Registration failures
+   * are only logged, they never prevent the tool from running.
+   *
+   * @param toolClass the class of the invoked tool, may be {@code null}.
+   * @return the monitor of the invocation.
+   */
+  static ToolExecutorMonitor register(final Class<?> toolClass) {
+    final String toolName = toolClass == null ? "unknown" : toolClass.getName();
+    final ToolExecutorMonitor monitor = new ToolExecutorMonitor(toolName);
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(toolName));
+      synchronized (ToolExecutorMonitor.class) {
+        if (server.isRegistered(name)) {
+          server.unregisterMBean(name);
+        }
+        server.registerMBean(monitor, name);
+        REGISTERED.put(name, monitor);
+        monitor.objectName = name;
+      }
+    } catch (final JMException | SecurityException e) {
+      LOG.warn("Could not register the management bean of tool {}: {}", toolName, e.getMessage());
+    }
+    return monitor;
+  }
+
+  /**
+   * Removes the monitor from the platform MBean server once the invocation has ended. Nothing
+   * happens if the monitor is not registered, e.g. because it was already unregistered or replaced
+   * by a later invocation of the same tool class. Failures are only logged.
+   */
+  void unregister() {
+    synchronized (ToolExecutorMonitor.class) {
+      if (objectName == null || REGISTERED.get(objectName) != this) {
+        return;
+      }
+      REGISTERED.remove(objectName);
+      try {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+          server.unregisterMBean(objectName);
+        }
+      } catch (final JMException | SecurityException e) {
+        LOG.warn("Could not unregister the management bean of tool {}: {}", toolName,
+            e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Runs one phase and records its duration and outcome.
+   *
+   * @param phase  the phase to run.
+   * @param action the work of the phase.
+   * @param <T>    the result type of the phase.
+   * @return the result of the action.
+   */
+  <T> T recordPhase(final ToolLifecyclePhase phase, final Supplier<T> action) {
+    final Phase recording = startPhase(phase);
+    try {
+      final T result = action.get();
+      recording.succeeded();
+      return result;
+    } catch (final RuntimeException | Error e) {
+      recording.failed(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Starts the recording of a phase, the returned recording has to be ended by the caller.
+   *
+   * @param phase the phase that starts.
+   * @return the running recording.
+   */
+  Phase startPhase(final ToolLifecyclePhase phase) {
+    executionState = phase.getRunningState();
+    return new Phase(phase);
+  }
+
+  /**
+   * Starts the recording of a shutdown request, before the shutdown lock is acquired.
+   *
+   * @param trigger {@link #SHUTDOWN_HOOK} or {@link #ERROR_PATH}.
+   * @return the running recording.
+   */
+  Shutdown startShutdown(final String trigger) {
+    shutdownRequests.incrementAndGet();
+    return new Shutdown(trigger);
+  }
+
+  /**
+   * Marks an invocation that ended without executing the tool, e.g. after printing the help.
+   */
+  void finishedWithoutExecution() {
+    executionState = "FINISHED";
+  }
+
+  private static String outcomeOf(final Throwable throwable) {
+    return throwable.getClass().getSimpleName();
+  }
+
+  private static double toMillis(final long nanos) {
+    return nanos < 0 ? -1 : nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public String getToolName() {
+    return toolName;
+  }
+
+  @Override
+  public long getUptimeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+  @Override
+  public String getExecutionState() {
+    return executionState;
+  }
+
+  @Override
+  public Map<String, Double> getPhaseDurationsMillis() {
+    synchronized (phaseDurations) {
+      return new LinkedHashMap<>(phaseDurations);
+    }
+  }
+
+  @Override
+  public double getShutdownLatencyMillis() {
+    return toMillis(shutdownLatencyNanos);
+  }
+
+  @Override
+  public double getShutdownLockWaitMillis() {
+    return toMillis(shutdownLockWaitNanos);
+  }
+
+  @Override
+  public int getShutdownRequestCount() {
+    return shutdownRequests.get();
+  }
+
+  /**
+   * A running phase.
+   */
+  final class Phase {
+
+    private final ToolLifecyclePhase phase;
+    private final long phaseStartNanos = System.nanoTime();
+    private final Object event;
+
+    private Phase(final ToolLifecyclePhase phase) {
+      this.phase = phase;
+      this.event = JFR_AVAILABLE ? JfrToolEvents.beginPhase(toolName, phase) : null;
+    }
+
+    void succeeded() {
+      end(SUCCESS);
+      if (phase == ToolLifecyclePhase.EXECUTE) {
+        executionState = "EXECUTED";
+      }
+    }
+
+    void failed(final Throwable cause) {
+      end(outcomeOf(cause));
+      executionState = "FAILED";
+    }
+
+    private void end(final String outcome) {
+      phaseDurations.put(phase.name(), toMillis(System.nanoTime() - phaseStartNanos));
+      if (event != null) {
+        JfrToolEvents.endPhase(event, outcome);
+      }
+    }
+  }
+
+  /**
+   * A running shutdown request.
+   */
+  final class Shutdown {
+
+    private final long requestNanos = System.nanoTime();
+    private final Object event;
+    private long lockWaitNanos;
+
+    private Shutdown(final String trigger) {
+      this.event = JFR_AVAILABLE ? JfrToolEvents.beginShutdown(toolName, trigger) : null;
+    }
+
+    /**
+     * Called once the shutdown lock was acquired.
+     */
+    void lockAcquired() {
+      lockWaitNanos = System.nanoTime() - requestNanos;
+      shutdownLockWaitNanos = lockWaitNanos;
+      executionState = "SHUTTING_DOWN";
+    }
+
+    void succeeded() {
+      end(false, SUCCESS);
+      executionState = "SHUT_DOWN";
+    }
+
+    /**
+     * Called if the tool had already been shut down by another request.
+     */
+    void skipped() {
+      end(true, SUCCESS);
+      executionState = "SHUT_DOWN";
+    }
+
+    void failed(final Throwable cause) {
+      end(false, outcomeOf(cause));
+      executionState = "FAILED";
+    }
+
+    private void end(final boolean skipped, final String outcome) {
+      if (!skipped) {
+        shutdownLatencyNanos = System.nanoTime() - requestNanos;
+      }
+      if (event != null) {
+        JfrToolEvents.endShutdown(event, lockWaitNanos, skipped, outcome);
+      }
+    }
+  }
+}
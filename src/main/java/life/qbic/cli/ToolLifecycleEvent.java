@@ -0,0 +1,29 @@
+package life.qbic.cli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event for one phase of a tool invocation. The duration of the event is the
+ * duration of the phase.
+ */
+@Name("life.qbic.cli.ToolLifecycle")
+@Label("Tool Lifecycle Phase")
+@Category({"QBiC", "Tool Executor"})
+@Description("A phase of a tool invocation: argument parsing, metadata extraction, instantiation or execution")
+@StackTrace(false)
+class ToolLifecycleEvent extends jdk.jfr.Event {
+
+  @Label("Tool")
+  String tool;
+
+  @Label("Phase")
+  String phase;
+
+  @Label("Outcome")
+  @Description("success or the simple class name of the exception that ended the phase")
+  String outcome;
+}
@@ -0,0 +1,25 @@
+package life.qbic.cli;
+
+/**
+ * Phases a {@link QBiCTool} runs through when it is invoked by the {@link ToolExecutor}.
+ */
+enum ToolLifecyclePhase {
+
+  PARSE_ARGUMENTS("PARSING_ARGUMENTS"),
+  EXTRACT_METADATA("EXTRACTING_METADATA"),
+  INSTANTIATE("INSTANTIATING"),
+  EXECUTE("EXECUTING");
+
+  private final String runningState;
+
+  ToolLifecyclePhase(final String runningState) {
+    this.runningState = runningState;
+  }
+
+  /**
+   * @return the execution state of the tool while the phase is running.
+   */
+  String getRunningState() {
+    return runningState;
+  }
+}
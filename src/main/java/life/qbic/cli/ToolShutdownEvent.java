@@ -0,0 +1,38 @@
+package life.qbic.cli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event for a shutdown request of a tool. The duration of the event includes
+ * the time spent waiting for the shutdown lock.
+ */
+@Name("life.qbic.cli.ToolShutdown")
+@Label("Tool Shutdown")
+@Category({"QBiC", "Tool Executor"})
+@Description("A shutdown request from the shutdown hook or the error path of the tool executor")
+@StackTrace(false)
+class ToolShutdownEvent extends jdk.jfr.Event {
+
+  @Label("Tool")
+  String tool;
+
+  @Label("Trigger")
+  @Description("shutdown hook or error path")
+  String trigger;
+
+  @Label("Lock Wait Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long lockWaitTime;
+
+  @Label("Skipped")
+  @Description("true if the tool had already been shut down by another request")
+  boolean skipped;
+
+  @Label("Outcome")
+  String outcome;
+}
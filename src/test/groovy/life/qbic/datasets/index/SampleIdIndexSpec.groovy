@@ -0,0 +1,222 @@
+package life.qbic.datasets.index
+
+import life.qbic.datasets.parsers.ParseOptions
+import life.qbic.utils.MaxQuantParser
+import life.qbic.utils.TestFiles
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.FileSystem
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+/**
+ * Tests for the {@link SampleIdIndex} class.
+ *
+ * @since 1.19.0
+ */
+class SampleIdIndexSpec extends Specification {
+
+    @TempDir
+    Path temporaryDirectory
+
+    def "sample codes are found by code, prefix and project"() {
+        given:
+        SampleIdIndex index = SampleIdIndex.open(temporaryDirectory.resolve("index"))
+        index.indexDataset(Paths.get("/data/first"), ["./sample_ids.txt": ["QABCD001AE", "QABCD002AF"] as Set])
+        index.indexDataset(Paths.get("/data/second"), ["./QABCD001AE_run": ["QABCD001AE"] as Set,
+                                                       "./QWXYZ010BC_run": ["QWXYZ010BC"] as Set])
+        expect:
+        index.findBySampleCode("QABCD001AE")*.datasetRoot == ["file:///data/first", "file:///data/second"]
+        index.findBySampleCode("QABCD001AE")*.filePath == ["./sample_ids.txt", "./QABCD001AE_run"]
+        index.findByPrefix("QABCD00")*.sampleCode == ["QABCD001AE", "QABCD001AE", "QABCD002AF"]
+        index.findByProject("QWXYZ") == [new SampleIdIndex.Entry("QWXYZ010BC", "file:///data/second", "./QWXYZ010BC_run")]
+        index.findDatasets("QABCD002AF") == ["file:///data/first"] as Set
+        index.findBySampleCode("QABCD003AG").isEmpty()
+        index.size() == 4
+        cleanup:
+        index.close()
+    }
+
+    def "indexing a dataset again replaces its entries"() {
+        given:
+        SampleIdIndex index = SampleIdIndex.open(temporaryDirectory.resolve("index"))
+        index.indexDataset(Paths.get("/data/first"), ["./sample_ids.txt": ["QABCD001AE", "QABCD002AF"] as Set])
+        when:
+        index.indexDataset(Paths.get("/data/first"), ["./sample_ids.txt": ["QABCD003AG"] as Set])
+        then:
+        index.findByProject("QABCD")*.sampleCode == ["QABCD003AG"]
+        index.size() == 1
+        cleanup:
+        index.close()
+    }
+
+    def "the index is restored after reopening and compacting"() {
+        given:
+        Path directory = temporaryDirectory.resolve("index")
+        SampleIdIndex index = SampleIdIndex.open(directory)
+        index.indexDataset(Paths.get("/data/first"), ["./sample_ids.txt": ["QABCD001AE"] as Set])
+        index.indexDataset(Paths.get("/data/second"), ["./sample_ids.txt": ["QABCD002AF"] as Set])
+        index.removeDataset(Paths.get("/data/first"))
+        index.close()
+        when:
+        SampleIdIndex reopened = SampleIdIndex.open(directory)
+        List<SampleIdIndex.Entry> entries = reopened.findByProject("QABCD")
+        reopened.compact()
+        reopened.close()
+        SampleIdIndex compacted = SampleIdIndex.open(directory)
+        then:
+        entries == [new SampleIdIndex.Entry("QABCD002AF", "file:///data/second", "./sample_ids.txt")]
+        compacted.findByProject("QABCD") == entries
+        cleanup:
+        compacted?.close()
+    }
+
+    def "more entries than fit into the buffer are found in order before and after reopening"() {
+        given:
+        Path directory = temporaryDirectory.resolve("index")
+        SampleIdIndex index = SampleIdIndex.open(directory)
+        List<String> sampleCodes = (1..999).collect { int number -> "QABCD" + String.format("%03d", number) + "AX" }
+        (0..<20).each { int dataset ->
+            index.indexDataset(Paths.get("/data/run" + String.format("%02d", dataset)), ["./sample_ids.txt": sampleCodes])
+        }
+        when:
+        index.removeDataset(Paths.get("/data/run05"))
+        index.indexDataset(Paths.get("/data/run07"), ["./sample_ids.txt": ["QABCD001AX"]])
+        List<SampleIdIndex.Entry> entries = index.findByProject("QABCD")
+        int size = index.size()
+        index.close()
+        SampleIdIndex reopened = SampleIdIndex.open(directory)
+        then:
+        size == 18 * 999 + 1
+        entries.size() == 18 * 999 + 1
+        entries*.sampleCode == entries*.sampleCode.toSorted()
+        entries.findAll { it.sampleCode == "QABCD001AX" }*.datasetRoot as Set ==
+                (0..<20).findAll { it != 5 }.collect { "file:///data/run" + String.format("%02d", it) } as Set
+        entries.findAll { it.sampleCode == "QABCD999AX" }*.datasetRoot.every { it != "file:///data/run05" && it != "file:///data/run07" }
+        reopened.findByProject("QABCD") == entries
+        reopened.findBySampleCode("QABCD500AX").size() == 18
+        reopened.size() == 18 * 999 + 1
+        cleanup:
+        reopened?.close()
+    }
+
+    def "an incomplete last record is discarded when the index is opened"() {
+        given:
+        Path directory = temporaryDirectory.resolve("index")
+        SampleIdIndex index = SampleIdIndex.open(directory)
+        index.indexDataset(Paths.get("/data/first"), ["./sample_ids.txt": ["QABCD001AE"] as Set])
+        index.close()
+        Path log = directory.resolve(SampleIdIndex.LOG_FILE_NAME)
+        long validLength = Files.size(log)
+        log.append([3, 0, 0] as byte[])
+        when:
+        SampleIdIndex reopened = SampleIdIndex.open(directory)
+        reopened.indexDataset(Paths.get("/data/second"), ["./sample_ids.txt": ["QABCD002AF"] as Set])
+        then:
+        reopened.findByProject("QABCD")*.sampleCode == ["QABCD001AE", "QABCD002AF"]
+        Files.size(log) > validLength
+        cleanup:
+        reopened?.close()
+    }
+
+    def "a dataset whose commit record is missing is discarded when the index is opened"() {
+        given:
+        Path directory = temporaryDirectory.resolve("index")
+        SampleIdIndex index = SampleIdIndex.open(directory)
+        index.indexDataset(Paths.get("/data/first"), ["./sample_ids.txt": ["QABCD001AE"] as Set])
+        index.close()
+        Path log = directory.resolve(SampleIdIndex.LOG_FILE_NAME)
+        long validLength = Files.size(log)
+        appendUncommittedDataset(log, "file:///data/interrupted", "QABCD003AG")
+        when:
+        SampleIdIndex reopened = SampleIdIndex.open(directory)
+        then:
+        reopened.findBySampleCode("QABCD003AG").isEmpty()
+        reopened.findByProject("QABCD")*.sampleCode == ["QABCD001AE"]
+        Files.size(log) == validLength
+        cleanup:
+        reopened?.close()
+    }
+
+    def "datasets at the root of different archives are kept apart"() {
+        given:
+        FileSystem first = FileSystems.newFileSystem(URI.create("jar:" + temporaryDirectory.resolve("first.zip").toUri()), [create: "true"])
+        FileSystem second = FileSystems.newFileSystem(URI.create("jar:" + temporaryDirectory.resolve("second.zip").toUri()), [create: "true"])
+        SampleIdIndex index = SampleIdIndex.open(temporaryDirectory.resolve("index"))
+        when:
+        index.indexDataset(first.getPath("/"), ["./sample_ids.txt": ["QABCD001AE"] as Set])
+        index.indexDataset(second.getPath("/"), ["./sample_ids.txt": ["QABCD002AF"] as Set])
+        then:
+        index.size() == 2
+        index.findDatasets("QABCD001AE") == [first.getPath("/").toUri().toString()] as Set
+        index.findDatasets("QABCD002AF") == [second.getPath("/").toUri().toString()] as Set
+        cleanup:
+        index.close()
+        first.close()
+        second.close()
+    }
+
+    def "an index cannot be opened twice at the same time"() {
+        given:
+        Path directory = temporaryDirectory.resolve("index")
+        SampleIdIndex index = SampleIdIndex.open(directory)
+        when:
+        SampleIdIndex.open(directory)
+        then:
+        thrown(IOException)
+        when:
+        index.close()
+        SampleIdIndex reopened = SampleIdIndex.open(directory)
+        then:
+        reopened.size() == 0
+        cleanup:
+        reopened?.close()
+    }
+
+    def "invalid sample codes are rejected"() {
+        given:
+        SampleIdIndex index = SampleIdIndex.open(temporaryDirectory.resolve("index"))
+        when:
+        index.indexDataset(Paths.get("/data/first"), ["./sample_ids.txt": ["QABCD001AE", "sample 1"] as Set])
+        then:
+        thrown(IllegalArgumentException)
+        index.size() == 0
+        cleanup:
+        index.close()
+    }
+
+    def "a parsed MaxQuant run is indexed with the codes of its sample id file"() {
+        given:
+        Path source = Paths.get(this.getClass().getResource("/dummyFileSystem/maxquant-run-output/validates").toURI())
+        Path root = TestFiles.copyDirectory(source, temporaryDirectory.resolve("run"))
+        root.resolve("QABCD_sample_ids.txt").text = "QABCD001AE\nQABCD002AF\n"
+        SampleIdIndex index = SampleIdIndex.open(temporaryDirectory.resolve("index"))
+        when:
+        new MaxQuantParser().parseFrom(root, new ParseOptions().sampleIdIndex(index))
+        then:
+        index.findByProject("QABCD")*.sampleCode == ["QABCD001AE", "QABCD002AF"]
+        index.findByProject("QABCD")*.filePath.every { it == "./QABCD_sample_ids.txt" }
+        index.findDatasets("QABCD001AE") == [root.toUri().toString() - ~/\/$/] as Set
+        cleanup:
+        index.close()
+    }
+
+    /*
+     * Appends the records of a dataset as an interrupted write would leave them, without the commit record
+     */
+    private static void appendUncommittedDataset(Path log, String root, String sampleCode) {
+        DataOutputStream output = new DataOutputStream(Files.newOutputStream(log, java.nio.file.StandardOpenOption.APPEND))
+        output.write(1)
+        output.writeUTF(root)
+        output.write(2)
+        output.writeUTF("./sample_ids.txt")
+        output.write(3)
+        output.writeLong(Long.parseLong(sampleCode, 36))
+        output.writeInt(1)
+        output.writeInt(1)
+        output.close()
+    }
+}
@@ -0,0 +1,158 @@
+package life.qbic.datasets.parsers
+
+import life.qbic.datamodel.datasets.MaxQuantRunResult
+import life.qbic.datamodel.datasets.NfCorePipelineResult
+import life.qbic.datamodel.datasets.OxfordNanoporeExperiment
+import life.qbic.utils.BioinformaticAnalysisParser
+import life.qbic.utils.MaxQuantParser
+import life.qbic.utils.NanoporeParser
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.function.BiFunction
+
+/**
+ * Tests for the {@link DatasetEventStream} class.
+ *
+ * @since 1.19.0
+ */
+class DatasetEventStreamSpec extends Specification {
+
+    def dummyFileSystem = this.getClass().getResource("/dummyFileSystem").getPath()
+
+    MaxQuantParser parser = new MaxQuantParser()
+
+    BiFunction<Path, ParseOptions, MaxQuantRunResult> parse = { Path root, ParseOptions options ->
+        parser.parseFrom(root, options)
+    } as BiFunction<Path, ParseOptions, MaxQuantRunResult>
+
+    def "all files are published before the parsed dataset"() {
+        given:
+        Path root = Paths.get(dummyFileSystem, "maxquant-run-output/validates")
+        def stream = DatasetEventStream.start(root, new ParseOptions(), capacity, parse)
+        when:
+        List<DatasetEvent> events = takeAll(stream)
+        then:
+        events.last().kind == DatasetEvent.Kind.COMPLETED
+        events.last().result instanceof MaxQuantRunResult
+        events.init()*.kind.every { it == DatasetEvent.Kind.FILE_DISCOVERED }
+        events.init()*.relativePath as Set == ["./mqpar.xml", "./QABCD_sample_ids.txt", "./txt/allPeptides.txt",
+                                               "./txt/evidence.txt", "./txt/parameters.txt", "./txt/peptides.txt",
+                                               "./txt/proteinGroups.txt"] as Set
+        events.find { it.relativePath == "./mqpar.xml" }.fileType == "xml"
+        events.find { it.relativePath == "./mqpar.xml" }.size == Paths.get(dummyFileSystem, "maxquant-run-output/validates/mqpar.xml").toFile().length()
+        stream.ended
+        where:
+        capacity << [1, DatasetEventStream.DEFAULT_CAPACITY]
+    }
+
+    def "a failing validation is published as final event after the discovered files"() {
+        given:
+        Path root = Paths.get(dummyFileSystem, "maxquant-run-output/fails/missing_txt_directory")
+        def stream = DatasetEventStream.start(root, new ParseOptions(), DatasetEventStream.DEFAULT_CAPACITY, parse)
+        when:
+        List<DatasetEvent> events = takeAll(stream)
+        then:
+        events.last().kind == DatasetEvent.Kind.FAILED
+        events.last().error instanceof DatasetValidationException
+        events.size() > 1
+    }
+
+    def "taking events after the final event fails"() {
+        given:
+        Path root = Paths.get(dummyFileSystem, "maxquant-run-output/validates")
+        def stream = DatasetEventStream.start(root, new ParseOptions(), DatasetEventStream.DEFAULT_CAPACITY, parse)
+        takeAll(stream)
+        when:
+        stream.take()
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "closing the stream cancels a parse that waits for room in the queue"() {
+        given:
+        Path root = Paths.get(dummyFileSystem, "maxquant-run-output/validates")
+        CountDownLatch parseEnded = new CountDownLatch(1)
+        Throwable parseError = null
+        BiFunction<Path, ParseOptions, MaxQuantRunResult> observedParse = { Path path, ParseOptions options ->
+            try {
+                return parser.parseFrom(path, options)
+            } catch (Throwable e) {
+                parseError = e
+                throw e
+            } finally {
+                parseEnded.countDown()
+            }
+        } as BiFunction<Path, ParseOptions, MaxQuantRunResult>
+        def stream = DatasetEventStream.start(root, new ParseOptions(), 1, observedParse)
+        stream.take()
+        when:
+        stream.close()
+        then:
+        parseEnded.await(10, TimeUnit.SECONDS)
+        parseError instanceof ParseCancelledException
+    }
+
+    def "the files of a Nanopore experiment are published before the parsed experiment"() {
+        given:
+        Path root = Paths.get(dummyFileSystem, "nanopore-instrument-output/validates/QABCD001AB_E12A345a01_PAE12345")
+        NanoporeParser nanoporeParser = new NanoporeParser()
+        BiFunction<Path, ParseOptions, OxfordNanoporeExperiment> nanoporeParse = { Path path, ParseOptions options ->
+            nanoporeParser.parseFrom(path, options)
+        } as BiFunction<Path, ParseOptions, OxfordNanoporeExperiment>
+        def stream = DatasetEventStream.start(root, new ParseOptions(), DatasetEventStream.DEFAULT_CAPACITY, nanoporeParse)
+        when:
+        List<DatasetEvent> events = takeAll(stream)
+        then:
+        events.last().kind == DatasetEvent.Kind.COMPLETED
+        events.last().result instanceof OxfordNanoporeExperiment
+        events.init()*.relativePath as Set == regularFiles(root, "")
+    }
+
+    def "the files of an nf-core pipeline result are published before the parsed result"() {
+        given:
+        Path root = Paths.get(dummyFileSystem, "bioinformatic-analysis-output/validates")
+        BioinformaticAnalysisParser nfCoreParser = new BioinformaticAnalysisParser()
+        BiFunction<Path, ParseOptions, NfCorePipelineResult> nfCoreParse = { Path path, ParseOptions options ->
+            nfCoreParser.parseFrom(path, options)
+        } as BiFunction<Path, ParseOptions, NfCorePipelineResult>
+        def stream = DatasetEventStream.start(root, new ParseOptions(), DatasetEventStream.DEFAULT_CAPACITY, nfCoreParse)
+        when:
+        List<DatasetEvent> events = takeAll(stream)
+        then:
+        events.last().kind == DatasetEvent.Kind.COMPLETED
+        events.last().result instanceof NfCorePipelineResult
+        events.init()*.relativePath as Set == regularFiles(root, "./")
+    }
+
+    def "a scan that does not visit every file is rejected"() {
+        given:
+        Path root = Paths.get(dummyFileSystem, "bioinformatic-analysis-output/validates")
+        ParseOptions options = new ParseOptions().scanMode(ScanMode.SCHEMA_GUIDED)
+        when:
+        DatasetEventStream.start(root, options, DatasetEventStream.DEFAULT_CAPACITY, parse)
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private static Set<String> regularFiles(Path root, String prefix) {
+        List<Path> files = Files.walk(root).withCloseable { paths -> paths.iterator().toList() }
+        return files.findAll { Path path -> Files.isRegularFile(path) && !Files.isHidden(path) }
+                .collect { Path path -> prefix + root.relativize(path).toString() } as Set<String>
+    }
+
+    private static List<DatasetEvent> takeAll(DatasetEventStream stream) {
+        List<DatasetEvent> events = []
+        DatasetEvent event = stream.poll(10, TimeUnit.SECONDS)
+        events.add(event)
+        while (!event.isFinal()) {
+            event = stream.poll(10, TimeUnit.SECONDS)
+            events.add(event)
+        }
+        return events
+    }
+}
@@ -0,0 +1,93 @@
+package life.qbic.datasets.parsers
+
+import life.qbic.datamodel.datasets.MaxQuantRunResult
+import life.qbic.datamodel.datasets.NfCorePipelineResult
+import life.qbic.datamodel.datasets.OxfordNanoporeExperiment
+import life.qbic.utils.BioinformaticAnalysisParser
+import life.qbic.utils.MaxQuantParser
+import life.qbic.utils.NanoporeParser
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.FileSystem
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+/**
+ * Tests for the {@link DatasetParserRegistry} class.
+ *
+ * @since 1.19.0
+ */
+class DatasetParserRegistrySpec extends Specification {
+
+    def dummyFileSystem = this.getClass().getResource("/dummyFileSystem").getPath()
+
+    DatasetParserRegistry registry = new DatasetParserRegistry()
+
+    @TempDir
+    Path temporaryFolder
+
+    def "the parsers of this library are registered through the service loader"() {
+        expect:
+        registry.providers*.datasetType as Set == ["maxQuant run result", "nf-core pipeline result", "Oxford Nanopore experiment"] as Set
+    }
+
+    def "a dataset is detected by its signature entries and parsed by the matching parser"() {
+        given:
+        Path root = Paths.get(dummyFileSystem, dataset)
+        when:
+        def parser = registry.parserFor(root)
+        def result = registry.parseFrom(root)
+        then:
+        expectedParser.isInstance(parser)
+        expectedResult.isInstance(result)
+        where:
+        dataset                                                                    | expectedParser              | expectedResult
+        "maxquant-run-output/validates"                                            | MaxQuantParser              | MaxQuantRunResult
+        "maxquant-run-output/validates2"                                           | MaxQuantParser              | MaxQuantRunResult
+        "bioinformatic-analysis-output/validates"                                  | BioinformaticAnalysisParser | NfCorePipelineResult
+        "nanopore-instrument-output/validates/QABCD001AB_E12A345a01_PAE12345"      | NanoporeParser              | OxfordNanoporeExperiment
+    }
+
+    def "the entries of a zip archive are listed without trailing separators"() {
+        given:
+        FileSystem archive = FileSystems.newFileSystem(URI.create("jar:" + temporaryFolder.resolve("dataset.zip").toUri()), [create: "true"])
+        Files.createDirectories(archive.getPath("/multiqc/star_salmon"))
+        Files.createFile(archive.getPath("/run_id.txt"))
+        when:
+        DirectoryListing listing = DirectoryListing.of(archive.getPath("/"), 10)
+        then:
+        listing.directoryNames == ["multiqc"] as Set
+        listing.fileNames == ["run_id.txt"] as Set
+        DirectoryListing.fileName(archive.getPath("/multiqc/")) == "multiqc"
+        DirectoryListing.fileName(archive.getPath("/")) == ""
+        cleanup:
+        archive?.close()
+    }
+
+    def "a directory without known signature entries results in a DataParserException"() {
+        given:
+        Path root = Paths.get(dummyFileSystem, "maxquant-run-output/validates/txt")
+        when:
+        registry.parseFrom(root)
+        then:
+        DataParserException exception = thrown(DataParserException)
+        exception.message.startsWith("Unknown dataset type")
+    }
+
+    def "a directory matching several providers results in a DataParserException"() {
+        given:
+        DatasetParserProvider alwaysMatching = Stub(DatasetParserProvider) {
+            matches(_) >> true
+            getDatasetType() >> "anything"
+        }
+        DatasetParserRegistry ambiguousRegistry = new DatasetParserRegistry([alwaysMatching, alwaysMatching], 10)
+        when:
+        ambiguousRegistry.parserFor(Paths.get(dummyFileSystem))
+        then:
+        DataParserException exception = thrown(DataParserException)
+        exception.message.startsWith("Ambiguous dataset type")
+    }
+}
@@ -0,0 +1,95 @@
+package life.qbic.services.connectors
+
+import spock.lang.Specification
+
+import java.time.Duration
+
+/**
+ * Tests for the {@link SharedHttpTransport} class.
+ *
+ * @since 1.19.0
+ */
+class SharedHttpTransportSpec extends Specification {
+
+    SharedHttpTransport transport = new SharedHttpTransport(new HttpTransportSettings())
+
+    def cleanup() {
+        transport.closeAll()
+    }
+
+    def "connectors of the same host share one client"() {
+        when:
+        def first = new ConsulConnector(new URL("http://localhost:8500/v1"), transport)
+        def second = new ConsulConnector(new URL("http://localhost:8500/v1/catalog"), transport)
+        def other = new ConsulConnector(new URL("http://127.0.0.1:8500/v1"), transport)
+        then:
+        first.httpClient.is(second.httpClient)
+        !first.httpClient.is(other.httpClient)
+        transport.openClientCount == 2
+        transport.leaseReuseRatio == 1 / 3d
+    }
+
+    def "closing one connector does not close the client of the others"() {
+        given:
+        def first = new ConsulConnector(new URL("http://localhost:8500/v1"), transport)
+        def second = new ConsulConnector(new URL("http://localhost:8500/v1"), transport)
+        when:
+        first.close()
+        first.close()
+        then:
+        transport.openClientCount == 1
+        second.httpClient.isRunning()
+        when:
+        second.close()
+        then:
+        transport.openClientCount == 0
+    }
+
+    def "a client is kept open for the linger time after its last lease was released"() {
+        given:
+        def lingering = new SharedHttpTransport(new HttpTransportSettings().linger(Duration.ofMinutes(1)))
+        def first = lingering.acquire(new URL("http://localhost:8500/v1"))
+        when:
+        first.close()
+        def second = lingering.acquire(new URL("http://localhost:8500/v1"))
+        then:
+        second.client.is(first.client)
+        lingering.leaseReuseRatio == 0.5d
+        cleanup:
+        lingering.closeAll()
+    }
+
+    def "connectors created with the configured default transport reuse its lingering client"() {
+        given:
+        SharedHttpTransport lingering = SharedHttpTransport.configureDefault(new HttpTransportSettings().linger(Duration.ofMinutes(1)))
+        when:
+        def first = new ConsulConnector(new URL("http://localhost:8500/v1"))
+        def client = first.httpClient
+        first.close()
+        def second = new ConsulConnector(new URL("http://localhost:8500/v1"))
+        then:
+        SharedHttpTransport.getDefault().is(lingering)
+        second.httpClient.is(client)
+        lingering.leaseReuseRatio == 0.5d
+        cleanup:
+        second?.close()
+        lingering.closeAll()
+        SharedHttpTransport.configureDefault(new HttpTransportSettings())
+    }
+
+    def "the client of a connector cannot be replaced"() {
+        given:
+        def connector = new ConsulConnector(new URL("http://localhost:8500/v1"), transport)
+        when:
+        connector.httpClient = null
+        then:
+        thrown(GroovyRuntimeException)
+        cleanup:
+        connector.close()
+    }
+
+    def "clients do not linger unless a linger time is configured"() {
+        expect:
+        new HttpTransportSettings().linger == Duration.ZERO
+    }
+}
@@ -6,10 +6,23 @@ import life.qbic.datamodel.datasets.datastructure.files.nfcore.SoftwareVersions
 import life.qbic.datamodel.datasets.datastructure.folders.DataFolder
 import life.qbic.datamodel.datasets.datastructure.folders.nfcore.PipelineInformationFolder
 import life.qbic.datamodel.datasets.datastructure.folders.nfcore.QualityControlFolder
+import life.qbic.datasets.parsers.CancellationToken
+import life.qbic.datasets.parsers.ParseCancelledException
 import life.qbic.datasets.parsers.DataParserException
 import life.qbic.datasets.parsers.DatasetValidationException
+import life.qbic.datasets.parsers.ParseOptions
+import life.qbic.datasets.parsers.ParseProgressListener
+import life.qbic.datasets.parsers.ParseTimeoutException
+import life.qbic.datasets.parsers.ScanMode
 import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.FileSystem
+import java.nio.file.FileSystems
+import java.nio.file.Files
+import java.nio.file.Path
 import java.nio.file.Paths
+import java.time.Instant
 
 
 /**
@@ -25,6 +38,9 @@ class BioinformaticAnalysisSpec extends Specification {
     def exampleDirectoriesRoot = this.getClass().getResource("/dummyFileSystem/bioinformatic-analysis-output").getPath()
     BioinformaticAnalysisParser bioinformaticAnalysisParser = new BioinformaticAnalysisParser()
 
+    @TempDir
+    Path temporaryFolder
+
     def "parsing a valid file structure returns a NfCorePipelineResult object"() {
         given: "A valid nf-core pipeline output data structure"
         def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates")
@@ -64,6 +80,48 @@ class BioinformaticAnalysisSpec extends Specification {
         assert executionReport.getName() == "execution_report_1234-56-78_90-12-34.html"
     }
 
+    def "the schema guided scan mode does not walk the content of large process folders"() {
+        given: "a valid nf-core pipeline output with a process folder of many files in nested folders"
+        Path pathToDirectory = TestFiles.copyDirectory(Paths.get(exampleDirectoriesRoot, "validates"), temporaryFolder.resolve("validates"))
+        Path workFolder = pathToDirectory.resolve("star_salmon")
+        (0..<20).each { int sample ->
+            Path sampleFolder = Files.createDirectories(workFolder.resolve("sample_${sample}"))
+            (0..<100).each { int chunk -> Files.createFile(sampleFolder.resolve("chunk_${chunk}.bam")) }
+        }
+        Files.createFile(workFolder.resolve("merged.tsv"))
+        List<Long> visitedFiles = []
+        when: "we parse the structure with the schema guided scan mode"
+        ParseOptions options = new ParseOptions()
+                .scanMode(ScanMode.SCHEMA_GUIDED)
+                .progressListener({ long directories, long files -> visitedFiles.add(files) } as ParseProgressListener)
+        DatasetSnapshot snapshot = bioinformaticAnalysisParser.parseToSnapshot(pathToDirectory, options)
+        Map starSalmon = (snapshot.content["processFolders"] as List<Map>).find { it["name"] == "star_salmon" }
+        then: "the process folder is summarized with its number of entries"
+        snapshot.toNfCorePipelineResult().processFolders*.name as Set == ["salmon", "star_salmon"] as Set
+        starSalmon["path"] == "./star_salmon"
+        starSalmon["children"] == []
+        starSalmon["summarized_entry_count"] == 21
+        and: "only the files of the root, the multiqc and the pipeline_info folders were visited"
+        visitedFiles.last() == 5
+    }
+
+    def "parsing a file structure inside a zip archive returns a NfCorePipelineResult object"() {
+        given: "A valid nf-core pipeline output data structure packed into a zip file"
+        Path zipFile = temporaryFolder.resolve("validates.zip")
+        TestFiles.zipDirectory(Paths.get(exampleDirectoriesRoot, "validates"), zipFile)
+        FileSystem archive = FileSystems.newFileSystem(zipFile, (ClassLoader) null)
+        when: "we parse the structure without extracting it"
+        NfCorePipelineResult nfCorePipelineResult = bioinformaticAnalysisParser.parseFrom(archive.getPath("/validates"))
+        then: "the relative paths are the same as for the extracted structure"
+        assert nfCorePipelineResult.runId.getRelativePath() == "./run_id.txt"
+        assert nfCorePipelineResult.sampleIds.getRelativePath() == "./sample_ids.txt"
+        assert nfCorePipelineResult.qualityControlFolder.getRelativePath() == "./multiqc"
+        assert nfCorePipelineResult.pipelineInformation.softwareVersions.getRelativePath() == "./pipeline_info/software_versions.yml"
+        assert nfCorePipelineResult.processFolders*.name == ["salmon"]
+        cleanup:
+        archive?.close()
+    }
+
     def "parsing a valid file structure without a run_id also returns a NfCorePipelineResult object"() {
         given: "A valid nf-core pipeline output data structure"
         def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates-no-run-id")
@@ -148,4 +206,25 @@ class BioinformaticAnalysisSpec extends Specification {
         DataParserException parseException = thrown(DataParserException)
         assert parseException.message == ("Expected a directory. Got a file instead.")
     }
+
+    def "a parse past its deadline fails with a ParseTimeoutException"() {
+        given:
+        def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates")
+        ParseOptions options = new ParseOptions().deadline(Instant.now().minusSeconds(1))
+        when:
+        bioinformaticAnalysisParser.parseFrom(pathToDirectory, options)
+        then:
+        thrown(ParseTimeoutException)
+    }
+
+    def "a cancelled parse fails with a ParseCancelledException"() {
+        given:
+        def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates")
+        CancellationToken token = new CancellationToken()
+        token.cancel()
+        when:
+        bioinformaticAnalysisParser.parseFrom(pathToDirectory, new ParseOptions().cancellationToken(token))
+        then:
+        thrown(ParseCancelledException)
+    }
 }
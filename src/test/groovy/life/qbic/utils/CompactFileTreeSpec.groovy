@@ -0,0 +1,103 @@
+package life.qbic.utils
+
+import spock.lang.Specification
+
+import java.nio.file.Path
+import java.nio.file.Paths
+
+/**
+ * Tests for the CompactFileTree
+ *
+ * @since 1.19.0
+ * @see CompactFileTree
+ */
+class CompactFileTreeSpec extends Specification {
+
+    def exampleDirectoriesRoot = this.getClass().getResource("/dummyFileSystem/maxquant-run-output").getPath()
+
+    def "the map view provides name, relative path and children of the directory tree"() {
+        given:
+        Path root = Paths.get(exampleDirectoriesRoot, "validates")
+        when:
+        Map tree = new CompactFileTree.Builder(root).build().asMap()
+        Map txtFolder = (tree["children"] as List<Map>).find { it["name"] == "txt" }
+        Map evidence = (txtFolder["children"] as List<Map>).find { it["name"] == "evidence.txt" }
+        then:
+        tree["name"] == "validates"
+        tree["path"] == "./"
+        txtFolder["path"] == "./txt"
+        txtFolder.containsKey("children")
+        !txtFolder.containsKey("fileType")
+        evidence["path"] == "./txt/evidence.txt"
+        evidence["fileType"] == "txt"
+        !evidence.containsKey("children")
+    }
+
+    def "properties put into a map view are kept for the node"() {
+        given:
+        Path root = Paths.get(exampleDirectoriesRoot, "validates")
+        Map tree = new CompactFileTree.Builder(root).build().asMap()
+        Map mqpar = (tree["children"] as List<Map>).find { it["name"] == "mqpar.xml" }
+        when:
+        tree.put("runParameters", mqpar)
+        mqpar.put("metadata", ["key": "value"])
+        then:
+        tree["runParameters"]["name"] == "mqpar.xml"
+        (tree["children"] as List<Map>).find { it["name"] == "mqpar.xml" }["metadata"] == ["key": "value"]
+        tree.keySet() == ["name", "path", "children", "runParameters"] as Set
+    }
+
+    def "map views are equal to maps with the same content"() {
+        given:
+        Path root = Paths.get(exampleDirectoriesRoot, "validates")
+        Map first = new CompactFileTree.Builder(root).build().asMap()
+        Map second = new CompactFileTree.Builder(root).build().asMap()
+        Map copy = new HashMap(first)
+        when:
+        first.put("runId", "a")
+        second.put("runId", "a")
+        copy.put("runId", "a")
+        then:
+        first == second
+        first == copy
+        copy == first
+        second == copy
+        first.hashCode() == copy.hashCode()
+        first.entrySet()*.key == ["name", "path", "children", "runId"]
+    }
+
+    def "the file type key, path prefix and filter can be configured"() {
+        given:
+        Path root = Paths.get(exampleDirectoriesRoot, "validates")
+        when:
+        CompactFileTree tree = new CompactFileTree.Builder(root)
+                .fileTypeKey("file_type")
+                .relativePathPrefix("")
+                .entryFilter({ Path entry, Boolean isDirectory -> !isDirectory })
+                .build()
+        Map mqpar = (tree.asMap()["children"] as List<Map>).find { it["name"] == "mqpar.xml" }
+        then:
+        (tree.asMap()["children"] as List<Map>).every { !it.containsKey("children") }
+        mqpar["path"] == "mqpar.xml"
+        mqpar["file_type"] == "xml"
+    }
+
+    def "directories rejected by the expansion policy are kept as summary nodes"() {
+        given:
+        Path root = Paths.get(exampleDirectoriesRoot, "validates")
+        when:
+        CompactFileTree tree = new CompactFileTree.Builder(root)
+                .expansionPolicy({ String relativePath -> relativePath != "txt" })
+                .build()
+        int txtFolder = (0..<tree.getChildCount(CompactFileTree.ROOT))
+                .collect { tree.getChild(CompactFileTree.ROOT, it) }
+                .find { tree.getName(it) == "txt" }
+        then:
+        tree.isSummary(txtFolder)
+        tree.getChildCount(txtFolder) == 0
+        tree.getSummarizedEntryCount(txtFolder) == 5
+        tree.nodeAsMap(txtFolder)["children"] == []
+        tree.nodeAsMap(txtFolder)["summarized_entry_count"] == 5
+        !tree.asMap().containsKey("summarized_entry_count")
+    }
+}
@@ -0,0 +1,155 @@
+package life.qbic.utils
+
+import life.qbic.datamodel.datasets.MaxQuantRunResult
+import life.qbic.datamodel.datasets.OxfordNanoporeExperiment
+import life.qbic.datasets.parsers.ParseOptions
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+
+/**
+ * Tests for the DatasetSnapshot
+ *
+ * @since 1.19.0
+ * @see DatasetSnapshot
+ */
+class DatasetSnapshotSpec extends Specification {
+
+    @TempDir
+    Path temporaryFolder
+
+    def maxQuantRoot = this.getClass().getResource("/dummyFileSystem/maxquant-run-output").getPath()
+    def nanoporeRoot = this.getClass().getResource("/dummyFileSystem/nanopore-instrument-output").getPath()
+
+    def "a maxQuant run result is rebuilt from a snapshot file"() {
+        given:
+        Path snapshotFile = temporaryFolder.resolve("validates.snapshot")
+        DatasetSnapshot snapshot = new MaxQuantParser().parseToSnapshot(Paths.get(maxQuantRoot, "validates"), new ParseOptions())
+        snapshot.writeTo(snapshotFile)
+        when:
+        MaxQuantRunResult result = DatasetSnapshot.readFrom(snapshotFile).toMaxQuantRunResult()
+        then:
+        result.runParameters.getRelativePath() == "./mqpar.xml"
+        result.evidence.getRelativePath() == "./txt/evidence.txt"
+        result.proteinGroups.getName() == "proteinGroups.txt"
+    }
+
+    def "a Nanopore experiment with its metadata is rebuilt from a snapshot"() {
+        given:
+        Path directory = Paths.get(nanoporeRoot, "validates/QABCD001AB_E12A345a01_PAE12345")
+        NanoporeParseResult parseResult = NanoporeParser.parse(directory, new NanoporeParser.Options(createSnapshot: true))
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+        parseResult.snapshot.get().writeTo(output)
+        when:
+        DatasetSnapshot snapshot = DatasetSnapshot.readFrom(new ByteArrayInputStream(output.toByteArray()))
+        OxfordNanoporeExperiment experiment = snapshot.toDataset() as OxfordNanoporeExperiment
+        then:
+        snapshot.type == DatasetSnapshot.DatasetType.OXFORD_NANOPORE_EXPERIMENT
+        experiment.getMeasurements().get(0).getMachineHost() == "PCT0094"
+        experiment.getMeasurements().get(0).getLibraryPreparationKit() == "SQK-LSK109"
+    }
+
+    def "values, repeated strings and shared maps survive a round trip"() {
+        given:
+        Map shared = ["name": "shared.txt", "size": 12L]
+        Map content = ["name"    : "root", "count": 3, "ratio": 0.5d, "precise": new BigDecimal("1.25"),
+                       "missing" : null, "valid": true, "huge": new BigInteger("123456789012345678901234567890"),
+                       "children": [shared, ["name": "other", "negative": -42]], "sharedFile": shared]
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+        when:
+        new DatasetSnapshot(DatasetSnapshot.DatasetType.MAX_QUANT_RUN_RESULT, content).writeTo(output)
+        Map restored = DatasetSnapshot.readFrom(new ByteArrayInputStream(output.toByteArray())).content
+        then:
+        restored == content
+        restored["count"] instanceof Integer
+        restored["children"][0]["size"] instanceof Long
+        restored["sharedFile"].is(restored["children"][0])
+    }
+
+    def "a file tree node referenced twice is written once"() {
+        given:
+        Map tree = new CompactFileTree.Builder(Paths.get(maxQuantRoot, "validates")).build().asMap()
+        tree.put("runParameters", (tree["children"] as List<Map>).find { it["name"] == "mqpar.xml" })
+        ByteArrayOutputStream output = new ByteArrayOutputStream()
+        ByteArrayOutputStream copiedOutput = new ByteArrayOutputStream()
+        when:
+        new DatasetSnapshot(DatasetSnapshot.DatasetType.MAX_QUANT_RUN_RESULT, tree).writeTo(output)
+        Map restored = DatasetSnapshot.readFrom(new ByteArrayInputStream(output.toByteArray())).content
+        Map copied = new LinkedHashMap(tree)
+        copied.put("runParameters", new LinkedHashMap(tree["runParameters"] as Map))
+        new DatasetSnapshot(DatasetSnapshot.DatasetType.MAX_QUANT_RUN_RESULT, copied).writeTo(copiedOutput)
+        then:
+        restored == tree
+        restored["runParameters"].is((restored["children"] as List<Map>).find { it["name"] == "mqpar.xml" })
+        output.size() < copiedOutput.size()
+    }
+
+    def "loading a snapshot as another dataset type fails"() {
+        given:
+        DatasetSnapshot snapshot = new DatasetSnapshot(DatasetSnapshot.DatasetType.NF_CORE_PIPELINE_RESULT, [:])
+        when:
+        snapshot.toMaxQuantRunResult()
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "reading a file that is not a snapshot fails"() {
+        given:
+        Path file = Files.write(temporaryFolder.resolve("not.snapshot"), "{}".getBytes("UTF-8"))
+        when:
+        DatasetSnapshot.readFrom(file)
+        then:
+        thrown(IOException)
+    }
+
+    def "a snapshot whose lengths exceed the file fails as corrupt"() {
+        given:
+        Path file = Files.write(temporaryFolder.resolve("corrupt.snapshot"), snapshotWithLength(tag, Integer.MAX_VALUE - 1))
+        when:
+        DatasetSnapshot.readFrom(file)
+        then:
+        IOException exception = thrown(IOException)
+        exception.message.startsWith("Corrupt snapshot")
+        where:
+        tag << [DatasetSnapshot.MAP, DatasetSnapshot.LIST, DatasetSnapshot.NEW_STRING]
+    }
+
+    def "a stream whose lengths exceed its content fails without allocating the length upfront"() {
+        given:
+        InputStream input = new ByteArrayInputStream(snapshotWithLength(tag, Integer.MAX_VALUE - 1))
+        when:
+        DatasetSnapshot.readFrom(input)
+        then:
+        thrown(EOFException)
+        where:
+        tag << [DatasetSnapshot.MAP, DatasetSnapshot.LIST, DatasetSnapshot.NEW_STRING]
+    }
+
+    private static byte[] snapshotWithLength(int tag, int length) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+        DataOutputStream data = new DataOutputStream(bytes)
+        data.writeInt(DatasetSnapshot.MAGIC)
+        data.writeByte(DatasetSnapshot.VERSION)
+        data.writeUTF(DatasetSnapshot.DatasetType.NF_CORE_PIPELINE_RESULT.name())
+        if (tag != DatasetSnapshot.MAP) {
+            // a map with one key whose value has the length
+            data.writeByte(DatasetSnapshot.MAP)
+            data.writeByte(1)
+            data.writeByte(DatasetSnapshot.NEW_STRING)
+            data.writeByte(1)
+            data.writeByte((int) ('a' as char))
+        }
+        data.writeByte(tag)
+        long remaining = length
+        while (remaining >= 0x80) {
+            data.writeByte((int) ((remaining & 0x7F) | 0x80))
+            remaining >>>= 7
+        }
+        data.writeByte((int) remaining)
+        data.flush()
+        return bytes.toByteArray()
+    }
+}
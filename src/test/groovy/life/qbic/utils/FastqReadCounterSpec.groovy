@@ -0,0 +1,90 @@
+package life.qbic.utils
+
+import life.qbic.datasets.parsers.CancellationToken
+import life.qbic.datasets.parsers.ParseCancelledException
+import life.qbic.datasets.parsers.ParseOptions
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.zip.GZIPOutputStream
+
+/**
+ * Tests for the FastqReadCounter
+ *
+ * @since 1.19.0
+ * @see FastqReadCounter
+ */
+class FastqReadCounterSpec extends Specification {
+
+    @TempDir
+    Path temporaryFolder
+
+    static final String RECORDS = "@read1\nACGT\n+\nIIII\n@read2\nACGTACGTAC\n+\nIIIIIIIIII\n"
+
+    void appendGzipMember(Path file, String content) {
+        OutputStream output = new GZIPOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND))
+        output.write(content.getBytes("US-ASCII"))
+        output.close()
+    }
+
+    def "reads and bases of a fastq.gz file are counted"() {
+        given:
+        Path fastq = temporaryFolder.resolve("reads.fastq.gz")
+        appendGzipMember(fastq, RECORDS)
+        when:
+        FastqReadCounter.ReadCount count = FastqReadCounter.countReads(fastq)
+        then:
+        count.readCount == 2
+        count.totalBases == 14
+    }
+
+    def "all members of a multi-member gzip file are counted"() {
+        given:
+        Path fastq = temporaryFolder.resolve("multi.fastq.gz")
+        appendGzipMember(fastq, RECORDS)
+        appendGzipMember(fastq, RECORDS)
+        when:
+        FastqReadCounter.ReadCount count = FastqReadCounter.countReads(fastq)
+        then:
+        count.readCount == 4
+        count.totalBases == 28
+    }
+
+    def "a cancellation while a file is decompressed stops the count"() {
+        given: "a file of several buffers and a token that is cancelled after the first buffer"
+        Path fastq = temporaryFolder.resolve("large.fastq.gz")
+        appendGzipMember(fastq, RECORDS * 40000)
+        CancellationToken token = new CancellationToken() {
+            int checks
+
+            @Override
+            boolean isCancelled() {
+                return ++checks > 2
+            }
+        }
+        when:
+        FastqReadCounter.countReads(["fastq_pass": [fastq]], 1, new ParseOptions().cancellationToken(token))
+        then:
+        thrown(ParseCancelledException)
+    }
+
+    def "counts are summed per group"() {
+        given:
+        Path first = temporaryFolder.resolve("first.fastq.gz")
+        Path second = temporaryFolder.resolve("second.fastq.gz")
+        Path empty = temporaryFolder.resolve("empty.fastq.gz")
+        appendGzipMember(first, RECORDS)
+        appendGzipMember(second, RECORDS)
+        Files.createFile(empty)
+        when:
+        Map<String, FastqReadCounter.ReadCount> counts = FastqReadCounter.countReads(
+                ["fastq_pass/QMFPJ005AE": [first, second], "fastq_fail/QMFPJ005AE": [empty]], 2)
+        then:
+        counts["fastq_pass/QMFPJ005AE"].readCount == 4
+        counts["fastq_pass/QMFPJ005AE"].totalBases == 28
+        counts["fastq_fail/QMFPJ005AE"].readCount == 0
+    }
+}
@@ -0,0 +1,93 @@
+package life.qbic.utils
+
+import org.everit.json.schema.loader.SchemaLoader
+import org.json.JSONObject
+import spock.lang.Specification
+
+/**
+ * Tests for the {@link FlatObjectSchemaValidator} class.
+ *
+ * @since 1.19.0
+ */
+class FlatObjectSchemaValidatorSpec extends Specification {
+
+    static final String FLAT_SCHEMA = '''{
+        "$schema": "http://json-schema.org/draft-07/schema#",
+        "title": "flat",
+        "type": "object",
+        "properties": {
+            "name": {"type": "string", "minLength": 2},
+            "modality": {"type": "string", "enum": ["CT", "MRI"]},
+            "date": {"type": "string", "pattern": "^[0-9]{2}\\\\.[0-9]{2}\\\\.[0-9]{4}$"},
+            "count": {"type": "integer"},
+            "note": {"description": "anything flat"}
+        },
+        "required": ["name", "modality"],
+        "additionalProperties": false
+    }'''
+
+    FlatObjectSchemaValidator validator = FlatObjectSchemaValidator.compile(new JSONObject(FLAT_SCHEMA))
+
+    def "flat schemas are compiled"() {
+        expect:
+        validator != null
+    }
+
+    def "schemas with unsupported features are not compiled"() {
+        expect:
+        FlatObjectSchemaValidator.compile(new JSONObject(schema)) == null
+        where:
+        schema << [
+                '{"type": "array"}',
+                '{"type": "object", "properties": {"a": {"$ref": "#/definitions/a"}}}',
+                '{"type": "object", "properties": {"a": {"type": "object"}}}',
+                '{"type": "object", "properties": {"a": {"type": ["string", "null"]}}}',
+                '{"type": "object", "properties": {"a": {"enum": [1, 2]}}}',
+                '{"type": "object", "properties": {"a": {"format": "date"}}}',
+                '{"type": "object", "additionalProperties": {"type": "string"}}',
+                '{"type": "object", "patternProperties": {"^a": {"type": "string"}}}'
+        ]
+    }
+
+    def "the compiled validator agrees with the generic engine"() {
+        given:
+        def genericSchema = SchemaLoader.load(new JSONObject(FLAT_SCHEMA))
+        boolean genericResult = true
+        when:
+        try {
+            genericSchema.validate(new JSONObject(propertyMap))
+        } catch (org.everit.json.schema.ValidationException ignored) {
+            genericResult = false
+        }
+        then:
+        validator.isValid(propertyMap) == genericResult
+        where:
+        propertyMap << [
+                [name: "brain", modality: "CT"],
+                [name: "brain", modality: "CT", date: "21.12.2011", count: 3, note: true],
+                [name: "brain", modality: "PET"],
+                [name: "b", modality: "CT"],
+                [name: "brain", modality: "CT", date: "30122011"],
+                [name: "brain", modality: "CT", count: "3"],
+                [name: "brain"],
+                [name: "brain", modality: "CT", unknown: "value"],
+                [:]
+        ]
+    }
+
+    def "values without an obvious json representation are left to the generic engine"() {
+        expect:
+        !validator.isValid([name: "brain", modality: "CT", note: value])
+        where:
+        value << [1.5d, [nested: "map"], ["list"], null]
+    }
+
+    def "keys that are not strings are left to the generic engine"() {
+        given:
+        def lenient = FlatObjectSchemaValidator.compile(new JSONObject('{"type": "object", "properties": {"a": {"type": "string"}}}'))
+        def key = "${'a'}"
+        expect:
+        lenient.isValid([a: "b", other: 1])
+        !lenient.isValid([(key): 5])
+    }
+}
@@ -0,0 +1,61 @@
+package life.qbic.utils
+
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Tests for the HiddenFileCleanup
+ *
+ * @since 1.19.0
+ * @see HiddenFileCleanup
+ */
+class HiddenFileCleanupSpec extends Specification {
+
+    @TempDir
+    Path temporaryFolder
+
+    Path hiddenFile
+    Path hiddenFolder
+    Path nestedFile
+
+    def setup() {
+        hiddenFile = Files.createFile(temporaryFolder.resolve(".DS_Store"))
+        hiddenFolder = Files.createDirectories(temporaryFolder.resolve(".tmp/nested"))
+        nestedFile = Files.createFile(hiddenFolder.resolve("part.tmp"))
+    }
+
+    def "hidden files and folders are deleted including their content"() {
+        when:
+        HiddenFileCleanup.Report report = HiddenFileCleanup.deleteAsync([hiddenFile, temporaryFolder.resolve(".tmp")], false, 2).get()
+        then:
+        report.successful
+        !report.dryRun
+        report.deletedPaths as Set == [hiddenFile, nestedFile, hiddenFolder, temporaryFolder.resolve(".tmp")] as Set
+        Files.notExists(hiddenFile)
+        Files.notExists(temporaryFolder.resolve(".tmp"))
+    }
+
+    def "a dry run reports the paths without deleting them"() {
+        when:
+        HiddenFileCleanup.Report report = HiddenFileCleanup.deleteAsync([hiddenFile, temporaryFolder.resolve(".tmp")], true, 2).get()
+        then:
+        report.dryRun
+        report.deletedPaths.containsAll([hiddenFile, nestedFile, hiddenFolder])
+        Files.exists(hiddenFile)
+        Files.exists(nestedFile)
+    }
+
+    def "paths that cannot be walked are reported as failures"() {
+        given:
+        Path missing = temporaryFolder.resolve(".missing")
+        when:
+        HiddenFileCleanup.Report report = HiddenFileCleanup.deleteAsync([missing, hiddenFile], false, 1).get()
+        then:
+        !report.successful
+        report.failures.containsKey(missing)
+        report.deletedPaths == [hiddenFile]
+    }
+}
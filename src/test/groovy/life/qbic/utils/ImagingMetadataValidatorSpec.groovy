@@ -1,6 +1,8 @@
 package life.qbic.utils
 
+import com.fasterxml.jackson.databind.ObjectMapper
 import org.everit.json.schema.ValidationException
+import org.json.JSONObject
 import spock.lang.Specification
 
 class ImagingMetadataValidatorSpec extends Specification {
@@ -72,4 +74,44 @@ class ImagingMetadataValidatorSpec extends Specification {
     then:
     thrown(ValidationException)
   }
+
+  def "the imaging metadata schema is compiled into the fast path"() {
+    expect:
+    ImagingMetadataValidator.ImageMetadataSchema.FAST_PATH != null
+  }
+
+  def "the fast path and the generic schema engine agree on #description"() {
+    when:
+    boolean validByFastPath = ImagingMetadataValidator.ImageMetadataSchema.FAST_PATH.isValid(propertyMap)
+    boolean validByEngine = isValidByGenericEngine(propertyMap)
+    then:
+    validByFastPath == valid
+    validByEngine == valid
+    where:
+    description                    | propertyMap                                                 || valid
+    "a valid object"               | validProperties()                                           || true
+    "an incorrect value type"      | validProperties() + ["instrument_user": 6]                  || false
+    "an incorrect imaging_date"    | validProperties() + ["imaging_date": "30122011"]            || false
+    "a missing property"           | validProperties().findAll { it.key != "imaged_tissue" }     || false
+    "an empty map"                 | [:]                                                         || false
+  }
+
+  private static Map validProperties() {
+    return ["image_filename"         : "myimage.tiff",
+            "imaging_modality"       : "CT",
+            "imaging_date"           : "21.12.2011",
+            "instrument_user"        : "Arnold Schwarzenegger",
+            "instrument_manufacturer": "FN",
+            "imaged_tissue"          : "brain"]
+  }
+
+  private static boolean isValidByGenericEngine(Map propertyMap) {
+    try {
+      JSONObject json = new JSONObject(new ObjectMapper().writeValueAsString(propertyMap))
+      ImagingMetadataValidator.ImageMetadataSchema.SCHEMA.validate(json)
+      return true
+    } catch (ValidationException ignored) {
+      return false
+    }
+  }
 }
@@ -2,10 +2,20 @@ package life.qbic.utils
 
 import life.qbic.datamodel.datasets.MaxQuantRunResult
 import life.qbic.datasets.parsers.DataParserException
+import life.qbic.datasets.parsers.CancellationToken
 import life.qbic.datasets.parsers.DatasetValidationException
+import life.qbic.datasets.parsers.ParseCancelledException
+import life.qbic.datasets.parsers.ParseOptions
+import life.qbic.datasets.parsers.ParseTimeoutException
+import life.qbic.datasets.parsers.ScanMode
 import spock.lang.Specification
+import spock.lang.TempDir
 
+import java.nio.file.FileSystem
+import java.nio.file.FileSystems
+import java.nio.file.Path
 import java.nio.file.Paths
+import java.time.Instant
 
 /**
  *  Tests for the MaxQuantParser
@@ -19,6 +29,9 @@ class MaxQuantParserSpec extends Specification {
     def exampleDirectoriesRoot = this.getClass().getResource("/dummyFileSystem/maxquant-run-output").getPath()
     MaxQuantParser maxQuantParser = new MaxQuantParser()
 
+    @TempDir
+    Path temporaryFolder
+
     def "parsing a valid file structure returns a maxQuantRunResult object"() {
         given: "A valid maxQuant run output data structure"
         def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates")
@@ -83,6 +96,17 @@ class MaxQuantParserSpec extends Specification {
         assert maxQuantRunResult.proteinGroups.getName()== "proteinGroups.txt"
     }
 
+    def "parsing with the schema guided scan mode returns the same maxQuantRunResult"() {
+        given: "A valid maxQuant run output data structure with a combined folder"
+        def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates2")
+        when: "we parse only the directories required by the schema"
+        MaxQuantRunResult maxQuantRunResult = maxQuantParser.parseFrom(pathToDirectory, new ParseOptions().scanMode(ScanMode.SCHEMA_GUIDED))
+        then: "the files in combined/txt are still found"
+        assert maxQuantRunResult.runParameters.getRelativePath() == "./mqpar.xml"
+        assert maxQuantRunResult.evidence.getRelativePath() == "./combined/txt/evidence.txt"
+        assert maxQuantRunResult.proteinGroups.getRelativePath() == "./combined/txt/proteinGroups.txt"
+    }
+
     def "parsing an invalid file structure throws DatasetValidationException"() {
         given:
         def pathToDirectory = Paths.get(exampleDirectoriesRoot, "fails/missing_txt_directory")
@@ -151,4 +175,57 @@ class MaxQuantParserSpec extends Specification {
         DataParserException parseException = thrown(DataParserException)
         assert parseException.message == ("Expected a directory. Got a file instead.")
     }
+
+    def "a parse past its deadline fails with a ParseTimeoutException"() {
+        given:
+        def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates")
+        ParseOptions options = new ParseOptions().deadline(Instant.now().minusSeconds(1))
+        when:
+        maxQuantParser.parseFrom(pathToDirectory, options)
+        then:
+        thrown(ParseTimeoutException)
+    }
+
+    def "a cancelled parse fails with a ParseCancelledException"() {
+        given:
+        def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates")
+        CancellationToken token = new CancellationToken()
+        token.cancel()
+        when:
+        maxQuantParser.parseFrom(pathToDirectory, new ParseOptions().cancellationToken(token))
+        then:
+        thrown(ParseCancelledException)
+    }
+
+    def "the progress listener is informed about the visited directories and files"() {
+        given:
+        def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates")
+        List<List<Long>> progress = []
+        ParseOptions options = new ParseOptions().progressListener({ long directories, long files ->
+            progress.add([directories, files])
+        })
+        when:
+        maxQuantParser.parseFrom(pathToDirectory, options)
+        then:
+        // the root and the txt directory
+        progress.size() == 2
+        progress.last()[0] == 2
+        // two files in the root directory and the five files in txt
+        progress.last()[1] == 7
+    }
+
+    def "parsing a file structure inside a zip archive returns a maxQuantRunResult object"() {
+        given: "A valid maxQuant run output data structure packed into a zip file"
+        Path zipFile = temporaryFolder.resolve("validates.zip")
+        TestFiles.zipDirectory(Paths.get(exampleDirectoriesRoot, "validates"), zipFile)
+        FileSystem archive = FileSystems.newFileSystem(zipFile, (ClassLoader) null)
+        when: "we parse the structure without extracting it"
+        MaxQuantRunResult maxQuantRunResult = maxQuantParser.parseFrom(archive.getPath("/validates"))
+        then: "the relative paths are the same as for the extracted structure"
+        assert maxQuantRunResult.runParameters.getRelativePath() == "./mqpar.xml"
+        assert maxQuantRunResult.evidence.getRelativePath() == "./txt/evidence.txt"
+        assert maxQuantRunResult.proteinGroups.getName() == "proteinGroups.txt"
+        cleanup:
+        archive?.close()
+    }
 }
@@ -1,17 +1,51 @@
 package life.qbic.utils
 
 import life.qbic.datamodel.datasets.OxfordNanoporeExperiment
+import life.qbic.datasets.parsers.CancellationToken
+import life.qbic.datasets.parsers.ParseCancelledException
+import life.qbic.datasets.parsers.ParseOptions
+import life.qbic.datasets.parsers.ParseTimeoutException
 import net.jimblackler.jsonschemafriend.ValidationException
 import spock.lang.Specification
+import spock.lang.TempDir
 
+import java.nio.file.Files
 import java.nio.file.NotDirectoryException
+import java.nio.file.Path
 import java.nio.file.Paths
+import java.time.Instant
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 import java.text.ParseException
 
 class NanoporeParserSpec extends Specification {
 
   def exampleDirectoriesRoot = this.getClass().getResource("/dummyFileSystem/nanopore-instrument-output").getPath()
 
+  @TempDir
+  Path temporaryFolder
+
+  /**
+   * Five reads of the example measurement, three of them passed the filter
+   */
+  private static final List<String> SEQUENCING_SUMMARY = [
+      "filename\tread_id\trun_id\tchannel\tstart_time\tduration\tpasses_filtering\tsequence_length_template\tmean_qscore_template\tbarcode_arrangement",
+      "FAL12345_pass_0.fastq\t0a1b2c3d-0001\t1234567a\t12\t10.5\t1.2\tTRUE\t1200\t11.2\tbarcode01",
+      "FAL12345_pass_0.fastq\t0a1b2c3d-0002\t1234567a\t48\t12.0\t0.8\tTRUE\t800\t10.4\tbarcode01",
+      "FAL12345_pass_0.fastq\t0a1b2c3d-0003\t1234567a\t101\t13.1\t3.1\tTRUE\t3000\t12.0\tbarcode02",
+      "FAL12345_fail_0.fastq\t0a1b2c3d-0004\t1234567a\t7\t14.9\t0.4\tFALSE\t400\t5.3\tbarcode02",
+      "FAL12345_fail_0.fastq\t0a1b2c3d-0005\t1234567a\t230\t15.2\t0.6\tFALSE\t600\t6.1\tunclassified"
+  ]
+
+  /**
+   * A sequencing summary without the read length column
+   */
+  private static final List<String> SEQUENCING_SUMMARY_WITHOUT_LENGTH = [
+      "filename\tread_id\trun_id\tchannel\tstart_time\tduration\tpasses_filtering\tmean_qscore_template",
+      "FAL12345_pass_0.fastq\t0a1b2c3d-0001\t1234567a\t12\t10.5\t1.2\tTRUE\t11.2",
+      "FAL12345_fail_0.fastq\t0a1b2c3d-0004\t1234567a\t7\t14.9\t0.4\tFALSE\t5.3"
+  ]
+
   def "parsing a valid file structure returns an OxfordNanoporeExperiment Object"() {
     given:
     def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates/QABCD001AB_E12A345a01_PAE12345")
@@ -25,6 +59,56 @@ class NanoporeParserSpec extends Specification {
     assert experiment.getMeasurements().get(0).getLibraryPreparationKit() == "SQK-LSK109"
   }
 
+  def "the optional counting stage reports read counts per fastq folder next to the experiment"() {
+    given:
+    def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates/QABCD001AB_E12A345a01_PAE12345")
+    when:
+    NanoporeParseResult result = NanoporeParser.parse(pathToDirectory, new NanoporeParser.Options(countFastqReads: true))
+    then:
+    assert result.experiment instanceof OxfordNanoporeExperiment
+    def countsOfMeasurement = result.readCounts["20200122_1217_1-A1-B1-PAE12345_1234567a"]
+    assert countsOfMeasurement.keySet() == ["fastq_pass", "fastq_fail"] as Set
+    // the example fastq files are empty
+    assert countsOfMeasurement["fastq_pass"].readCount == 0
+  }
+
+  def "the optional statistics stage adds the read statistics of the sequencing summary to the metadata"() {
+    given:
+    def pathToDirectory = experimentWithSequencingSummary(SEQUENCING_SUMMARY)
+    when:
+    NanoporeParseResult result = NanoporeParser.parse(pathToDirectory,
+        new NanoporeParser.Options(computeSequencingStatistics: true, createSnapshot: true))
+    then:
+    assert result.experiment instanceof OxfordNanoporeExperiment
+    Map statistics = result.snapshot.get().content["children"][0]["metadata"]["sequencing_summary_statistics"]
+    assert statistics["read_count"] == 5
+    assert statistics["passed_read_count"] == 3
+    assert statistics["total_bases"] == 6000
+    assert statistics["passed_bases"] == 5000
+    assert statistics["n50"] == 3000
+    assert statistics["barcodes"]["barcode02"] == ["read_count": 2L, "total_bases": 3400L]
+  }
+
+  def "the sequencing summary is not read unless the statistics stage is enabled"() {
+    given:
+    def pathToDirectory = experimentWithSequencingSummary(SEQUENCING_SUMMARY)
+    when:
+    NanoporeParseResult result = NanoporeParser.parse(pathToDirectory, new NanoporeParser.Options(createSnapshot: true))
+    then:
+    assert !result.snapshot.get().content["children"][0]["metadata"].containsKey("sequencing_summary_statistics")
+  }
+
+  def "a sequencing summary without read lengths leaves out the statistics but still parses the experiment"() {
+    given:
+    def pathToDirectory = experimentWithSequencingSummary(SEQUENCING_SUMMARY_WITHOUT_LENGTH)
+    when:
+    NanoporeParseResult result = NanoporeParser.parse(pathToDirectory,
+        new NanoporeParser.Options(computeSequencingStatistics: true, createSnapshot: true))
+    then:
+    assert result.experiment.getMeasurements().get(0).getLibraryPreparationKit() == "SQK-LSK109"
+    assert !result.snapshot.get().content["children"][0]["metadata"].containsKey("sequencing_summary_statistics")
+  }
+
   def "parsing a valid file structure with an html report returns an OxfordNanoporeExperiment Object"() {
     given:
     def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates/QABCD001AB_E12A345a01_PAE12345_nanopore_html_report")
@@ -251,4 +335,99 @@ class NanoporeParserSpec extends Specification {
     thrown(RuntimeException)
 
   }
+
+  def "a parse past its deadline fails with a ParseTimeoutException"() {
+    given:
+    def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates/QABCD001AB_E12A345a01_PAE12345")
+    ParseOptions options = new ParseOptions().deadline(Instant.now().minusSeconds(1))
+    when:
+    new NanoporeParser().parseFrom(pathToDirectory, options)
+    then:
+    thrown(ParseTimeoutException)
+  }
+
+  def "a cancelled parse fails with a ParseCancelledException"() {
+    given:
+    def pathToDirectory = Paths.get(exampleDirectoriesRoot, "validates/QABCD001AB_E12A345a01_PAE12345")
+    CancellationToken token = new CancellationToken()
+    token.cancel()
+    when:
+    new NanoporeParser().parseFrom(pathToDirectory, new ParseOptions().cancellationToken(token))
+    then:
+    thrown(ParseCancelledException)
+  }
+
+  def "a cancellation while the sequencing summary is read fails the parse instead of single measurements"() {
+    given: "a token that reports the cancellation only to the statistics stage"
+    def pathToDirectory = experimentWithSequencingSummary(SEQUENCING_SUMMARY)
+    CancellationToken token = new CancellationToken() {
+      @Override
+      boolean isCancelled() {
+        return Thread.currentThread().stackTrace.any { it.className == SequencingSummaryStatistics.name }
+      }
+    }
+    ParseOptions parseOptions = new ParseOptions().cancellationToken(token)
+    when:
+    NanoporeParser.parse(pathToDirectory, new NanoporeParser.Options(computeSequencingStatistics: true, parseOptions: parseOptions))
+    then:
+    thrown(ParseCancelledException)
+  }
+
+  def "a dangling hidden symbolic link is collected as hidden file instead of failing the parse"() {
+    given: "an editor lock file pointing to a file that does not exist"
+    Path experiment = temporaryFolder.resolve("QABCD001AB_E12A345a01_PAE12345")
+    TestFiles.copyDirectory(Paths.get(exampleDirectoriesRoot, "validates/QABCD001AB_E12A345a01_PAE12345"), experiment)
+    Path lockFile = experiment.resolve("20200122_1217_1-A1-B1-PAE12345_1234567a/.#report.md")
+    Files.createSymbolicLink(lockFile, Paths.get("user@host.12345"))
+    when:
+    NanoporeParseResult result = NanoporeParser.parse(experiment, new NanoporeParser.Options(dryRunHiddenFileCleanup: true))
+    then:
+    result.experiment instanceof OxfordNanoporeExperiment
+    result.hiddenFileCleanup.get().deletedPaths.contains(lockFile)
+  }
+
+  def "the metadata of many measurements is the same when read concurrently"() {
+    given:
+    Path experiment = temporaryFolder.resolve("QABCD001AB_E12A345a01_PAE12345")
+    Path measurement = Paths.get(exampleDirectoriesRoot, "validates/QABCD001AB_E12A345a01_PAE12345/20200122_1217_1-A1-B1-PAE12345_1234567a")
+    ["1234567a", "1234567b", "1234567c", "1234567d"].each { String suffix ->
+      TestFiles.copyDirectory(measurement, experiment.resolve("20200122_1217_1-A1-B1-PAE12345_${suffix}"))
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(3)
+    when:
+    def sequential = NanoporeParser.parse(experiment, new NanoporeParser.Options(parallelism: 1, createSnapshot: true))
+    def concurrent = NanoporeParser.parse(experiment, new NanoporeParser.Options(metadataExecutor: executor, createSnapshot: true))
+    then:
+    concurrent.experiment.measurements.size() == 4
+    concurrent.snapshot.get().content == sequential.snapshot.get().content
+    cleanup:
+    executor.shutdown()
+  }
+
+  def "metadata failures are reported for every failing measurement"() {
+    given:
+    Path experiment = temporaryFolder.resolve("QABCD001AB_E12A345a01_PAE12345")
+    Path valid = Paths.get(exampleDirectoriesRoot, "validates/QABCD001AB_E12A345a01_PAE12345/20200122_1217_1-A1-B1-PAE12345_1234567a")
+    Path missingMetadata = Paths.get(exampleDirectoriesRoot,
+        "fails/QABCD001AB_E12A345a01_PAE12345_missing_metadata/20200605_1435_1-E3-H3_PAE42978_e57ee0a6")
+    TestFiles.copyDirectory(valid, experiment.resolve("20200122_1217_1-A1-B1-PAE12345_1234567a"))
+    TestFiles.copyDirectory(missingMetadata, experiment.resolve("20200605_1435_1-E3-H3_PAE42978_e57ee0a6"))
+    TestFiles.copyDirectory(missingMetadata, experiment.resolve("20200605_1435_1-E3-H3_PAE42978_e57ee0a7"))
+    when:
+    NanoporeParser.parse(experiment, new NanoporeParser.Options(parallelism: 4))
+    then:
+    MeasurementMetadataException exception = thrown(MeasurementMetadataException)
+    exception.failures.keySet() == ["20200605_1435_1-E3-H3_PAE42978_e57ee0a6", "20200605_1435_1-E3-H3_PAE42978_e57ee0a7"] as Set
+  }
+
+  /*
+   * A copy of the valid example experiment whose sequencing summary has the given lines
+   */
+  private Path experimentWithSequencingSummary(List<String> lines) {
+    Path experiment = TestFiles.copyDirectory(Paths.get(exampleDirectoriesRoot, "validates/QABCD001AB_E12A345a01_PAE12345"),
+        temporaryFolder.resolve("QABCD001AB_E12A345a01_PAE12345"))
+    Path summary = experiment.resolve("20200122_1217_1-A1-B1-PAE12345_1234567a/sequencing_summary_.txt")
+    Files.write(summary, (lines.join("\n") + "\n").getBytes("UTF-8"))
+    return experiment
+  }
 }
@@ -0,0 +1,102 @@
+package life.qbic.utils
+
+import life.qbic.datasets.parsers.CancellationToken
+import life.qbic.datasets.parsers.ParseCancelledException
+import life.qbic.datasets.parsers.ParseOptions
+import spock.lang.Specification
+import spock.lang.TempDir
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Tests for the SequencingSummaryStatistics
+ *
+ * @since 1.19.0
+ * @see SequencingSummaryStatistics
+ */
+class SequencingSummaryStatisticsSpec extends Specification {
+
+    @TempDir
+    Path temporaryFolder
+
+    static final String HEADER = "filename\tread_id\tpasses_filtering\tsequence_length_template\tmean_qscore_template\tbarcode_arrangement"
+
+    Path writeSummary(List<String> records) {
+        Path summary = temporaryFolder.resolve("sequencing_summary_PAE12345.txt")
+        Files.write(summary, ([HEADER] + records).join("\n").getBytes("US-ASCII"))
+        return summary
+    }
+
+    def "reads, bases and the N50 are computed from the summary"() {
+        given: "a summary with five reads of two barcodes"
+        Path summary = writeSummary([
+                "a.fastq\tr1\tTRUE\t100\t9.1\tbarcode01",
+                "a.fastq\tr2\tTRUE\t200\t9.2\tbarcode01",
+                "a.fastq\tr3\tFALSE\t300\t5.0\tbarcode02",
+                "a.fastq\tr4\tTRUE\t400\t9.4\tbarcode02",
+                "a.fastq\tr5\tFALSE\t100000\t4.0\tbarcode02"
+        ])
+        when:
+        SequencingSummaryStatistics statistics = SequencingSummaryStatistics.compute(summary)
+        then:
+        statistics.readCount == 5
+        statistics.passedReadCount == 3
+        statistics.failedReadCount == 2
+        statistics.totalBases == 101000
+        statistics.passedBases == 700
+        statistics.failedBases == 100300
+        statistics.longestRead == 100000
+        statistics.n50 == 100000
+        statistics.barcodeYields["barcode01"].readCount == 2
+        statistics.barcodeYields["barcode01"].totalBases == 300
+        statistics.barcodeYields["barcode02"].readCount == 3
+        statistics.barcodeYields["barcode02"].totalBases == 100700
+    }
+
+    def "splitting the summary into chunks yields the same statistics"() {
+        given: "a summary with many reads"
+        List<String> records = (1..5000).collect { int i ->
+            "a.fastq\tr${i}\t${i % 3 == 0 ? 'FALSE' : 'TRUE'}\t${i}\t9.0\tbarcode0${i % 4}".toString()
+        }
+        Path summary = writeSummary(records)
+        when:
+        SequencingSummaryStatistics sequential = SequencingSummaryStatistics.compute(summary, 1)
+        SequencingSummaryStatistics chunked = SequencingSummaryStatistics.compute(summary, 7, 1024)
+        then:
+        sequential.readCount == 5000
+        chunked.toMap() == sequential.toMap()
+    }
+
+    def "a cancellation while the summary is read stops the scan"() {
+        given: "a summary of several buffers and a token that is cancelled after the first buffer"
+        List<String> records = (1..40000).collect { int i ->
+            "a.fastq\tr${i}\tTRUE\t${i}\t9.0\tbarcode01".toString()
+        }
+        Path summary = writeSummary(records)
+        CancellationToken token = new CancellationToken() {
+            int checks
+
+            @Override
+            boolean isCancelled() {
+                return ++checks > 2
+            }
+        }
+        when:
+        SequencingSummaryStatistics.compute(summary, 1, new ParseOptions().cancellationToken(token))
+        then:
+        thrown(ParseCancelledException)
+    }
+
+    def "an empty summary results in empty statistics"() {
+        given:
+        Path summary = temporaryFolder.resolve("sequencing_summary_.txt")
+        Files.createFile(summary)
+        when:
+        SequencingSummaryStatistics statistics = SequencingSummaryStatistics.compute(summary)
+        then:
+        statistics.readCount == 0
+        statistics.n50 == 0
+        statistics.barcodeYields.isEmpty()
+    }
+}
@@ -0,0 +1,65 @@
+package life.qbic.utils
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Copies and packs the example datasets, so tests can change or archive them without touching
+ * the test resources.
+ *
+ * @since 1.19.0
+ */
+class TestFiles {
+
+    /**
+     * Copies a directory with all its content, existing files in the target are replaced
+     * @param source the directory to copy
+     * @param target the directory the content is copied to, it is created if it does not exist
+     * @return the target directory
+     * @since 1.19.0
+     */
+    static Path copyDirectory(Path source, Path target) {
+        Files.walk(source).withCloseable { paths ->
+            paths.forEach { Path path ->
+                Path copy = target.resolve(source.relativize(path).toString())
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(copy)
+                } else {
+                    Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING)
+                }
+            }
+        }
+        return target
+    }
+
+    /**
+     * Packs a directory into a zip file. The directory itself is the top level entry of the archive.
+     * @param directory the directory to pack
+     * @param zipFile the zip file that is written
+     * @return the zip file
+     * @since 1.19.0
+     */
+    static Path zipDirectory(Path directory, Path zipFile) {
+        ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(zipFile))
+        try {
+            Files.walk(directory).withCloseable { paths ->
+                paths.forEach { Path entry ->
+                    String name = directory.getParent().relativize(entry).toString().replace(File.separator, "/")
+                    if (Files.isDirectory(entry)) {
+                        output.putNextEntry(new ZipEntry(name + "/"))
+                    } else {
+                        output.putNextEntry(new ZipEntry(name))
+                        Files.copy(entry, output)
+                    }
+                    output.closeEntry()
+                }
+            }
+        } finally {
+            output.close()
+        }
+        return zipFile
+    }
+}
@@ -3,9 +3,11 @@ package life.qbic.cli;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -18,6 +20,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMX;
+import javax.management.ObjectName;
 import life.qbic.exceptions.ApplicationException;
 import org.apache.commons.lang3.Validate;
 import org.apache.logging.log4j.Logger;
@@ -273,6 +277,79 @@ public class ToolExecutorTest {
         assertFalse(toolStatus.shutdownInvoked);
     }
 
+    @Test
+    public void testManagementBeanIsRegistered() throws Exception {
+        copyPropertiesFrom("tool.properties_fine");
+
+        toolExecutor.invoke(MockTool.class, MockCommand.class, defaultArgs);
+
+        final ObjectName name = new ObjectName(
+            ToolExecutorMonitor.OBJECT_NAME_PREFIX + ObjectName.quote(MockTool.class.getName()));
+        final ToolExecutorMXBean bean = JMX.newMXBeanProxy(
+            ManagementFactory.getPlatformMBeanServer(), name, ToolExecutorMXBean.class);
+        assertEquals("EXECUTED", bean.getExecutionState());
+        assertTrue(bean.getPhaseDurationsMillis().containsKey(ToolLifecyclePhase.EXECUTE.name()));
+        assertEquals(0, bean.getShutdownRequestCount());
+    }
+
+    @Test
+    public void testErrorDuringExecutionIsRecorded() throws Exception {
+        copyPropertiesFrom("tool.properties_fine");
+
+        try {
+            toolExecutor.invoke(MockTool.class, MockCommand.class, generateArguments("-e"));
+            fail("The error thrown by the tool was expected to be propagated");
+        } catch (final Error e) {
+            assertEquals("execute() Error! Hammertime!", e.getMessage());
+        }
+
+        final ObjectName name = new ObjectName(
+            ToolExecutorMonitor.OBJECT_NAME_PREFIX + ObjectName.quote(MockTool.class.getName()));
+        final ToolExecutorMXBean bean = JMX.newMXBeanProxy(
+            ManagementFactory.getPlatformMBeanServer(), name, ToolExecutorMXBean.class);
+        assertEquals("FAILED", bean.getExecutionState());
+        assertTrue(bean.getPhaseDurationsMillis().containsKey(ToolLifecyclePhase.EXECUTE.name()));
+    }
+
+    @Test
+    public void testManagementBeanIsUnregisteredWithoutExecution() throws Exception {
+        copyPropertiesFrom("tool.properties_fine");
+
+        toolExecutor.invoke(MockTool.class, MockCommand.class, generateArguments("-v"));
+
+        final ObjectName name = new ObjectName(
+            ToolExecutorMonitor.OBJECT_NAME_PREFIX + ObjectName.quote(MockTool.class.getName()));
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    public void testManagementBeanIsUnregisteredAfterUnknownOption() throws Exception {
+        copyPropertiesFrom("tool.properties_fine");
+
+        try {
+            toolExecutor.invoke(MockTool.class, MockCommand.class, generateArguments("--unknown-option"));
+            fail("An unknown option should not be accepted");
+        } catch (final RuntimeException e) {
+            final ObjectName name = new ObjectName(
+                ToolExecutorMonitor.OBJECT_NAME_PREFIX + ObjectName.quote(MockTool.class.getName()));
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        }
+    }
+
+    @Test
+    public void testManagementBeanIsUnregisteredAfterFailedInstantiation() throws Exception {
+        copyPropertiesFrom("tool.properties_fine");
+
+        try {
+            toolExecutor.invoke(FaultyConstructorTool.class, MockCommand.class, defaultArgs);
+            fail("A tool whose constructor fails should not be started");
+        } catch (final ApplicationException e) {
+            final ObjectName name = new ObjectName(
+                ToolExecutorMonitor.OBJECT_NAME_PREFIX + ObjectName.quote(FaultyConstructorTool.class.getName()));
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        }
+    }
+
     @Test
     public void testWithPrivateConstructorInCommandClass() throws IOException, URISyntaxException {
         copyPropertiesFrom("tool.properties_fine");
@@ -404,6 +481,8 @@ public class ToolExecutorTest {
         public volatile boolean faultyExecution;
         @Option(names = {"-s"}, description = "Faulty Shutdown.")
         public volatile boolean faultyShutdown;
+        @Option(names = {"-e"}, description = "Execution throwing an error.")
+        public volatile boolean errorInExecution;
         @Option(names = {"-k"}, description = "Key.", required = true)
         public volatile int key;
 
@@ -464,6 +543,9 @@ public class ToolExecutorTest {
             if (super.getCommand().faultyExecution) {
                 throw new ApplicationException("execute() Stop! Hammertime!");
             }
+            if (super.getCommand().errorInExecution) {
+                throw new Error("execute() Error! Hammertime!");
+            }
             toolStatus.completed = true;
         }
 